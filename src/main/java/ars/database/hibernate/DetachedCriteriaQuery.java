@@ -1,30 +1,42 @@
 package ars.database.hibernate;
 
 import java.util.Map;
+import java.util.Date;
+import java.util.Set;
 import java.util.List;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Map.Entry;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.io.Serializable;
 
 import org.hibernate.Session;
 import org.hibernate.Criteria;
-import org.hibernate.type.Type;
+import org.hibernate.CacheMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.NullPrecedence;
 import org.hibernate.sql.JoinType;
 import org.hibernate.SessionFactory;
+import org.hibernate.ScrollableResults;
 import org.hibernate.criterion.Order;
 import org.hibernate.criterion.Property;
 import org.hibernate.criterion.MatchMode;
 import org.hibernate.criterion.Criterion;
+import org.hibernate.criterion.Conjunction;
+import org.hibernate.criterion.Disjunction;
 import org.hibernate.criterion.Subqueries;
 import org.hibernate.criterion.Projections;
 import org.hibernate.criterion.Restrictions;
 import org.hibernate.criterion.ProjectionList;
 import org.hibernate.criterion.DetachedCriteria;
-import org.hibernate.metadata.ClassMetadata;
 
 import ars.util.Beans;
 import ars.util.Strings;
@@ -33,9 +45,16 @@ import ars.util.Conditions.Or;
 import ars.util.Conditions.And;
 import ars.util.Conditions.Match;
 import ars.util.Conditions.Condition;
+import ars.database.model.Model;
+import ars.database.model.TreeModel;
+import ars.database.repository.Page;
 import ars.database.repository.Query;
+import ars.database.repository.Cursor;
+import ars.database.repository.QueryCache;
 import ars.database.repository.Repositories;
 import ars.database.hibernate.Hibernates;
+import ars.database.hibernate.Hibernates.PropertyMetadata;
+import ars.database.hibernate.ScrollableCursor;
 
 /**
  * Hibernate离线查询实现
@@ -46,18 +65,56 @@ import ars.database.hibernate.Hibernates;
  *            数据模型
  */
 public class DetachedCriteriaQuery<T> implements Query<T> {
+	/**
+	 * 游标默认抓取数量
+	 */
+	public static final int DEFAULT_FETCH_SIZE = 500;
+
+	/**
+	 * 数据总量缓存默认有效时间（毫秒）
+	 */
+	public static final long DEFAULT_TOTAL_CACHE_TIMEOUT = 60 * 1000;
+
+	/**
+	 * 单个数据模型最多缓存的数据总量数
+	 */
+	private static final int TOTAL_CACHE_CAPACITY = 1024;
+
+	/**
+	 * 数据总量缓存（数据模型/查询条件指纹/数据总量）
+	 */
+	private static final ConcurrentMap<Class<?>, ConcurrentMap<String, Total>> TOTAL_CACHE = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, Total>>();
+
+	/**
+	 * 数据总量缓存清除版本（数据模型/最近清除版本）
+	 */
+	private static final ConcurrentMap<Class<?>, Long> TOTAL_EVICTIONS = new ConcurrentHashMap<Class<?>, Long>();
+
+	/**
+	 * 数据总量缓存版本（每次清除数据总量缓存时递增）
+	 */
+	private static final AtomicLong TOTAL_VERSION = new AtomicLong();
+
+	private static volatile long totalCacheTimeout = DEFAULT_TOTAL_CACHE_TIMEOUT; // 数据总量缓存有效时间
+
 	private int page; // 分页页码
 	private int size; // 分页数量
 	private T object; // 单个实例
 	private List<?> stats; // 统计数据列表
 	private List<T> objects; // 实例列表
 	private Integer count; // 实例数量
+	private Object[] after; // 键集分页起始值
 	private Class<T> model; // 数据模型
 	private boolean loaded; // 数据是否已加载
 	private boolean subquery; // 是否需要子查询
-	private DetachedCriteria criteria; // 离线查询对象
+	private boolean prepared; // 查询条件是否已准备
+	private long version; // 执行查询前的查询结果缓存版本
+	private Set<Class<?>> relations; // 关联数据模型
+	private ConditionCriteria criteria; // 离线查询对象
 	private SessionFactory sessionFactory; // 会话工厂对象
+	private boolean signable = true; // 查询条件是否可生成签名
 	private List<String> orders = new LinkedList<String>();
+	private List<String> signatures = new LinkedList<String>(); // 查询条件签名列表
 	private ProjectionList projections = Projections.projectionList();
 	private Map<String, String> aliases = new HashMap<String, String>();
 
@@ -70,14 +127,228 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 		}
 		this.model = model;
 		this.sessionFactory = sessionFactory;
-		this.criteria = DetachedCriteria.forClass(model);
+		this.criteria = new ConditionCriteria(model);
+	}
+
+	/**
+	 * 数据总量缓存
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	static final class Total {
+		final int value; // 数据总量
+		final long timestamp; // 缓存时间
+
+		Total(int value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+	}
+
+	/**
+	 * 记录关联及查询条件的离线查询对象
+	 * 
+	 * 排序不做记录，统计数据总量时根据已记录的关联及查询条件重建不包含排序的查询对象；不支持子查询对象
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	static final class ConditionCriteria extends DetachedCriteria {
+		private static final long serialVersionUID = 1L;
+
+		private final Class<?> model; // 数据模型
+		private final List<Object[]> joins = new LinkedList<Object[]>(); // 关联（属性路径、别名、关联类型、关联条件）
+		private final List<Criterion> criterions = new LinkedList<Criterion>(); // 查询条件
+
+		ConditionCriteria(Class<?> model) {
+			super(model.getName());
+			this.model = model;
+		}
+
+		@Override
+		public DetachedCriteria add(Criterion criterion) {
+			this.criterions.add(criterion);
+			return super.add(criterion);
+		}
+
+		@Override
+		public DetachedCriteria createAlias(String associationPath, String alias) {
+			return this.createAlias(associationPath, alias, JoinType.INNER_JOIN);
+		}
+
+		@Override
+		public DetachedCriteria createAlias(String associationPath, String alias, JoinType joinType) {
+			this.joins.add(new Object[] { associationPath, alias, joinType, null });
+			return super.createAlias(associationPath, alias, joinType);
+		}
+
+		@Override
+		public DetachedCriteria createAlias(String associationPath, String alias, JoinType joinType,
+				Criterion withClause) {
+			this.joins.add(new Object[] { associationPath, alias, joinType, withClause });
+			return super.createAlias(associationPath, alias, joinType, withClause);
+		}
+
+		@Override
+		public DetachedCriteria createCriteria(String associationPath) {
+			throw new UnsupportedOperationException("Sub criteria is not supported:" + associationPath);
+		}
+
+		@Override
+		public DetachedCriteria createCriteria(String associationPath, String alias) {
+			throw new UnsupportedOperationException("Sub criteria is not supported:" + associationPath);
+		}
+
+		@Override
+		public DetachedCriteria createCriteria(String associationPath, JoinType joinType) {
+			throw new UnsupportedOperationException("Sub criteria is not supported:" + associationPath);
+		}
+
+		@Override
+		public DetachedCriteria createCriteria(String associationPath, String alias, JoinType joinType) {
+			throw new UnsupportedOperationException("Sub criteria is not supported:" + associationPath);
+		}
+
+		@Override
+		public DetachedCriteria createCriteria(String associationPath, String alias, JoinType joinType,
+				Criterion withClause) {
+			throw new UnsupportedOperationException("Sub criteria is not supported:" + associationPath);
+		}
+
+		/**
+		 * 根据已记录的关联及查询条件构建数据总量统计查询对象
+		 * 
+		 * @return 离线查询对象
+		 */
+		DetachedCriteria getCountCriteria() {
+			DetachedCriteria criteria = DetachedCriteria.forClass(this.model);
+			for (Object[] join : this.joins) {
+				if (join[3] == null) {
+					criteria.createAlias((String) join[0], (String) join[1], (JoinType) join[2]);
+				} else {
+					criteria.createAlias((String) join[0], (String) join[1], (JoinType) join[2], (Criterion) join[3]);
+				}
+			}
+			for (Criterion criterion : this.criterions) {
+				criteria.add(criterion);
+			}
+			return criteria.setProjection(Projections.rowCount());
+		}
+
+	}
+
+	/**
+	 * 设置数据总量缓存有效时间
+	 * 
+	 * @param timeout
+	 *            有效时间（毫秒），小于1时不使用缓存
+	 */
+	public static void setTotalCacheTimeout(long timeout) {
+		totalCacheTimeout = timeout;
+		if (timeout < 1) {
+			TOTAL_CACHE.clear();
+		}
+	}
+
+	/**
+	 * 清除数据模型的数据总量缓存
+	 * 
+	 * @param model
+	 *            数据模型
+	 */
+	public static void evictTotal(Class<?> model) {
+		if (model == null) {
+			throw new IllegalArgumentException("Illegal model:" + model);
+		}
+		long version = TOTAL_VERSION.incrementAndGet();
+		Long eviction = TOTAL_EVICTIONS.putIfAbsent(model, version);
+		while (eviction != null && eviction < version && !TOTAL_EVICTIONS.replace(model, eviction, version)) {
+			eviction = TOTAL_EVICTIONS.get(model);
+		}
+		TOTAL_CACHE.remove(model);
+	}
+
+	/**
+	 * 判断统计开始后数据模型的数据总量缓存是否已被清除
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param version
+	 *            统计前获取的数据总量缓存版本
+	 * @return true/false
+	 */
+	private static boolean isTotalEvicted(Class<?> model, long version) {
+		Long eviction = TOTAL_EVICTIONS.get(model);
+		return eviction != null && eviction > version;
+	}
+
+	/**
+	 * 获取缓存的数据总量
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param fingerprint
+	 *            查询条件指纹
+	 * @return 数据总量，如果缓存不存在或已失效则返回null
+	 */
+	private static Integer getCacheTotal(Class<?> model, String fingerprint) {
+		Map<String, Total> totals = TOTAL_CACHE.get(model);
+		Total total = totals == null ? null : totals.get(fingerprint);
+		if (total == null) {
+			return null;
+		} else if (System.currentTimeMillis() - total.timestamp > totalCacheTimeout) {
+			totals.remove(fingerprint);
+			return null;
+		}
+		return total.value;
+	}
+
+	/**
+	 * 缓存数据总量
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param fingerprint
+	 *            查询条件指纹
+	 * @param total
+	 *            数据总量
+	 * @param version
+	 *            统计前获取的数据总量缓存版本，统计开始后缓存已被清除时不缓存
+	 */
+	private static void setCacheTotal(Class<?> model, String fingerprint, int total, long version) {
+		if (totalCacheTimeout < 1 || isTotalEvicted(model, version)) {
+			return;
+		}
+		ConcurrentMap<String, Total> totals = TOTAL_CACHE.get(model);
+		if (totals == null) {
+			totals = new ConcurrentHashMap<String, Total>();
+			ConcurrentMap<String, Total> exists = TOTAL_CACHE.putIfAbsent(model, totals);
+			if (exists != null) {
+				totals = exists;
+			}
+		}
+		if (totals.size() >= TOTAL_CACHE_CAPACITY) {
+			totals.clear();
+		}
+		totals.put(fingerprint, new Total(total, System.currentTimeMillis()));
+		if (isTotalEvicted(model, version)) { // 写入缓存期间发生清除
+			totals.remove(fingerprint);
+		}
 	}
 
 	public SessionFactory getSessionFactory() {
 		return this.sessionFactory;
 	}
 
+	/**
+	 * 获取离线查询对象，调用方可能直接添加查询条件，此后查询结果不再缓存
+	 * 
+	 * @return 离线查询对象
+	 */
 	public DetachedCriteria getDetachedCriteria() {
+		this.signable = false;
 		return this.criteria;
 	}
 
@@ -89,24 +360,36 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	 * @return 在线查询对象
 	 */
 	protected Criteria getExecutableCriteria(Session session) {
-		if (this.subquery) {
-			String primary = Repositories.getPrimary(this.getModel());
-			this.criteria = DetachedCriteria.forClass(this.getModel()).add(
-					Subqueries.propertyIn(primary, this.criteria.setProjection(Property.forName(primary))));
-			this.aliases.clear();
-		}
-		for (String property : this.orders) {
-			boolean asc = property.charAt(0) == '+';
-			String alias = this.getCriteriaAlias(property.substring(1), JoinType.LEFT_OUTER_JOIN);
-			if (asc) {
-				this.criteria.addOrder(Order.asc(alias));
-			} else {
-				this.criteria.addOrder(Order.desc(alias));
+		return this.getExecutableCriteria(session, true);
+	}
+
+	/**
+	 * 获取在线查询对象
+	 * 
+	 * @param session
+	 *            持久化会话对象
+	 * @param sorted
+	 *            是否排序
+	 * @return 在线查询对象
+	 */
+	protected Criteria getExecutableCriteria(Session session, boolean sorted) {
+		List<String> orders = this.getExecutableOrders();
+		this.prepare(orders);
+		this.criteria.setProjection(null);
+		if (sorted) {
+			for (String property : orders) {
+				boolean asc = property.charAt(0) == '+';
+				String alias = this.getCriteriaAlias(property.substring(1), JoinType.LEFT_OUTER_JOIN);
+				Order order = asc ? Order.asc(alias) : Order.desc(alias);
+				if (this.after != null) { // 键集分页时空值视为最小值，与键集分页条件保持一致
+					order.nulls(asc ? NullPrecedence.FIRST : NullPrecedence.LAST);
+				}
+				this.criteria.addOrder(order);
 			}
 		}
 		Criteria criteria = this.criteria.getExecutableCriteria(session).setResultTransformer(
 				DetachedCriteria.ROOT_ENTITY);
-		int index = (this.page - 1) * this.size;
+		int index = this.after == null ? (this.page - 1) * this.size : 0;
 		if (index > 0) {
 			criteria.setFirstResult(index);
 		}
@@ -116,6 +399,343 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 		return criteria;
 	}
 
+	/**
+	 * 获取执行查询使用的排序属性，键集分页时以主键作为最后的排序属性
+	 * 
+	 * @return 排序属性列表
+	 */
+	protected List<String> getExecutableOrders() {
+		return this.after == null ? this.orders : this.getSeekOrders();
+	}
+
+	/**
+	 * 准备查询条件（子查询转换及键集分页条件），多次调用只执行一次
+	 * 
+	 * @param orders
+	 *            排序属性列表
+	 */
+	protected void prepare(List<String> orders) {
+		if (!this.prepared) {
+			this.prepared = true;
+			if (this.subquery) {
+				String primary = Repositories.getPrimary(this.getModel());
+				ConditionCriteria criteria = new ConditionCriteria(this.getModel());
+				criteria.add(Subqueries.propertyIn(primary, this.criteria.setProjection(Property.forName(primary))));
+				this.criteria = criteria;
+				this.aliases.clear();
+			}
+			if (this.after != null) {
+				this.criteria.add(this.getAfterCriterion(orders, this.getAfterValues(orders)));
+			}
+		}
+	}
+
+	/**
+	 * 记录查询条件签名（条件之间为与关系，生成缓存键时按签名排序，与条件添加顺序无关）
+	 * 
+	 * @param handle
+	 *            条件名称
+	 * @param property
+	 *            属性名称
+	 * @param value
+	 *            条件值
+	 */
+	protected void sign(String handle, Object property, Object value) {
+		if (this.signable) {
+			StringBuilder signature = new StringBuilder(handle).append('(');
+			if (this.appendSignature(signature, property) && this.appendSignature(signature.append(','), value)) {
+				this.signatures.add(signature.append(')').toString());
+			} else {
+				this.signable = false;
+				this.signatures.clear();
+			}
+		}
+	}
+
+	/**
+	 * 将条件值追加到签名中（字符串值带长度前缀，避免不同条件值拼接后相同）
+	 * 
+	 * @param signature
+	 *            查询条件签名
+	 * @param value
+	 *            条件值
+	 * @return 条件值是否可生成签名
+	 */
+	protected boolean appendSignature(StringBuilder signature, Object value) {
+		if (value == null) {
+			signature.append('~');
+		} else if (value instanceof Collection || value instanceof Object[]) {
+			Object[] values = value instanceof Collection ? ((Collection<?>) value).toArray() : (Object[]) value;
+			signature.append('[');
+			for (int i = 0; i < values.length; i++) {
+				if (i > 0) {
+					signature.append(',');
+				}
+				if (!this.appendSignature(signature, values[i])) {
+					return false;
+				}
+			}
+			signature.append(']');
+		} else if (value instanceof Date) {
+			signature.append('@').append(((Date) value).getTime());
+		} else if (value instanceof Model) {
+			Integer id = ((Model) value).getId();
+			if (id == null) {
+				return false;
+			}
+			signature.append('#').append(value.getClass().getName()).append(':').append(id);
+		} else if (value instanceof Or || value instanceof And) {
+			signature.append(value instanceof Or ? "or" : "and");
+			return this.appendSignature(signature, value instanceof Or ? ((Or) value).getConditions()
+					: ((And) value).getConditions());
+		} else if (value instanceof Match) {
+			signature.append("match");
+			return this.appendSignature(signature,
+					new Object[] { ((Match) value).getKey(), ((Match) value).getValue() });
+		} else if (Beans.isMetaClass(value.getClass())) {
+			String text = value.toString();
+			signature.append(text.length()).append(':').append(text);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * 获取查询条件指纹（按签名排序的查询条件）
+	 * 
+	 * @return 查询条件指纹，如果查询条件无法生成签名则返回null
+	 */
+	protected String getFingerprint() {
+		if (!this.signable) {
+			return null;
+		}
+		List<String> signatures = new ArrayList<String>(this.signatures);
+		Collections.sort(signatures);
+		return signatures.toString();
+	}
+
+	/**
+	 * 获取查询结果缓存键
+	 * 
+	 * 缓存键由查询条件指纹、统计属性、排序属性、分页参数及键集分页起始值组成，同时记录执行查询前的缓存版本
+	 * 
+	 * @param operation
+	 *            查询操作名称
+	 * @return 缓存键，如果数据模型查询结果不可缓存或查询条件无法生成签名则返回null
+	 */
+	protected String getCacheKey(String operation) {
+		QueryCache cache = Repositories.getQueryCache();
+		String fingerprint = cache == null || !cache.isCacheable(this.model) ? null : this.getFingerprint();
+		if (fingerprint == null) {
+			return null;
+		}
+		this.version = cache.getVersion();
+		StringBuilder key = new StringBuilder(operation).append('|').append(fingerprint);
+		if (operation.equals("stats")) {
+			key.append('|').append(this.projections);
+		}
+		if (!operation.equals("count")) {
+			key.append('|').append(this.getExecutableOrders()).append('|').append(this.page).append(',')
+					.append(this.size);
+		} else if (this.after != null) { // 键集分页条件与排序属性相关
+			key.append('|').append(this.getExecutableOrders());
+		}
+		if (this.after != null && !this.appendSignature(key.append('|'), this.after)) {
+			return null;
+		}
+		return key.toString();
+	}
+
+	/**
+	 * 获取缓存的查询结果
+	 * 
+	 * 对象实体查询只缓存主键，命中缓存后通过当前会话重新加载对象实体，避免共享其他会话的代理对象及集合对象
+	 * 
+	 * @param key
+	 *            缓存键
+	 * @return 查询结果（主键列表、主键、数量或统计数据），如果缓存不存在则返回null
+	 */
+	protected Object getCacheValue(String key) {
+		return key == null ? null : Repositories.getQueryCache().get(this.model, key);
+	}
+
+	/**
+	 * 判断当前事务是否存在写操作，存在写操作时查询结果可能包含未提交的数据，不写入共享缓存
+	 * 
+	 * @return true/false
+	 */
+	protected boolean isWriting() {
+		return Hibernates.isWriting(Hibernates.getCurrentSession(this.sessionFactory));
+	}
+
+	/**
+	 * 缓存查询结果
+	 * 
+	 * @param key
+	 *            缓存键
+	 * @param value
+	 *            查询结果（主键列表、主键、数量或统计数据）
+	 */
+	protected void setCacheValue(String key, Object value) {
+		if (key != null && value != null && !this.isWriting()) {
+			Repositories.getQueryCache().put(this.model, key, value, this.relations, this.version);
+		}
+	}
+
+	/**
+	 * 根据缓存的主键列表通过会话加载对象实体
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @param identifiers
+	 *            主键列表
+	 * @return 与主键顺序一致的对象实体列表，如果存在已被删除的对象实体则返回null
+	 */
+	@SuppressWarnings("unchecked")
+	protected List<T> getCacheObjects(Session session, List<Serializable> identifiers) {
+		Map<Serializable, Object> entities = Hibernates.getObjects(session, this.model, identifiers);
+		List<T> objects = new ArrayList<T>(identifiers.size());
+		for (Serializable id : identifiers) {
+			Object entity = entities.get(id);
+			if (entity == null) {
+				return null;
+			}
+			objects.add((T) entity);
+		}
+		return objects;
+	}
+
+	/**
+	 * 获取对象实体主键列表
+	 * 
+	 * @param objects
+	 *            对象实体列表
+	 * @return 主键列表
+	 */
+	protected List<Serializable> getIdentifiers(List<T> objects) {
+		List<Serializable> identifiers = new ArrayList<Serializable>(objects.size());
+		for (T object : objects) {
+			identifiers.add(Hibernates.getIdentifier(this.sessionFactory, object));
+		}
+		return identifiers;
+	}
+
+	/**
+	 * 判断统计数据是否只包含基本类型的值（包含对象实体的统计数据不缓存）
+	 * 
+	 * @param stats
+	 *            统计数据
+	 * @return true/false
+	 */
+	private static boolean isScalar(List<?> stats) {
+		for (Object row : stats) {
+			for (Object value : row instanceof Object[] ? (Object[]) row : new Object[] { row }) {
+				if (value != null && !Beans.isMetaClass(value.getClass())) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * 获取键集分页排序属性（以主键作为最后的排序属性，保证排序唯一）
+	 * 
+	 * @return 排序属性列表
+	 */
+	protected List<String> getSeekOrders() {
+		String primary = Hibernates.getPrimary(this.sessionFactory, this.model);
+		for (String order : this.orders) {
+			if (order.substring(1).equals(primary)) {
+				return this.orders;
+			}
+		}
+		List<String> orders = new ArrayList<String>(this.orders.size() + 1);
+		orders.addAll(this.orders);
+		orders.add(new StringBuilder("+").append(primary).toString());
+		return orders;
+	}
+
+	/**
+	 * 获取键集分页起始值
+	 * 
+	 * @param orders
+	 *            排序属性列表
+	 * @return 排序值数组
+	 */
+	protected Object[] getAfterValues(List<String> orders) {
+		if (this.after.length == 1 && this.model.isInstance(this.after[0])) {
+			Object object = this.after[0];
+			Object[] values = new Object[orders.size()];
+			for (int i = 0; i < values.length; i++) {
+				Object value = object;
+				for (String property : orders.get(i).substring(1).split("\\.")) {
+					if (value == null) {
+						break;
+					}
+					value = Beans.getValue(value, property);
+				}
+				values[i] = value;
+			}
+			return values;
+		}
+		if (this.after.length != orders.size()) {
+			throw new IllegalArgumentException("Illegal after values:" + Arrays.toString(this.after));
+		}
+		return this.after;
+	}
+
+	/**
+	 * 获取键集分页条件匹配对象，多个排序属性按照字典顺序比较：(a, b, id) > (?, ?, ?)
+	 * 
+	 * 空值被视为最小值，与排序时升序空值在前、降序空值在后保持一致
+	 * 
+	 * @param orders
+	 *            排序属性列表
+	 * @param values
+	 *            排序值数组
+	 * @return 条件匹配对象
+	 */
+	protected Criterion getAfterCriterion(List<String> orders, Object[] values) {
+		Disjunction disjunction = Restrictions.disjunction();
+		List<Criterion> equals = new ArrayList<Criterion>(orders.size());
+		for (int i = 0; i < orders.size(); i++) {
+			String order = orders.get(i);
+			boolean asc = order.charAt(0) == '+';
+			String property = order.substring(1);
+			Object value = values[i];
+			String alias;
+			if (value == null) {
+				alias = this.getCriteriaAlias(property);
+				if (asc) {
+					Conjunction conjunction = Restrictions.conjunction();
+					for (Criterion criterion : equals) {
+						conjunction.add(criterion);
+					}
+					disjunction.add(conjunction.add(Restrictions.isNotNull(alias)));
+				}
+				equals.add(Restrictions.isNull(alias));
+				continue;
+			}
+			ConditionWrapper condition = this.getConditionWrapper(property, value);
+			alias = this.getCriteriaAlias(condition.getProperty());
+			Conjunction conjunction = Restrictions.conjunction();
+			for (Criterion criterion : equals) {
+				conjunction.add(criterion);
+			}
+			if (asc) {
+				conjunction.add(Restrictions.gt(alias, condition.getValue()));
+			} else { // 降序时空值排在最后
+				conjunction.add(Restrictions.or(Restrictions.lt(alias, condition.getValue()),
+						Restrictions.isNull(alias)));
+			}
+			disjunction.add(conjunction);
+			equals.add(Restrictions.eq(alias, condition.getValue()));
+		}
+		return disjunction;
+	}
+
 	/**
 	 * 获取属性查询描述
 	 * 
@@ -138,6 +758,11 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 						alias);
 			}
 			this.aliases.put(property, alias);
+			if (this.relations == null) {
+				this.relations = new HashSet<Class<?>>();
+			}
+			this.relations.add(Hibernates.getPropertyMetadata(this.sessionFactory, this.model, property)
+					.getTypeClass());
 		}
 		return alias;
 	}
@@ -205,17 +830,19 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	 * @return 条件包装对象实例
 	 */
 	protected ConditionWrapper getConditionWrapper(String property, Object value) {
+		PropertyMetadata metadata = Hibernates.getPropertyMetadata(this.sessionFactory, this.model, property);
 		if (!this.subquery) {
 			int sign = property.indexOf('.');
-			this.subquery = Hibernates.getPropertyType(this.sessionFactory, this.model,
-					sign > 0 ? property.substring(0, sign) : property).isCollectionType();
-		}
-		Type type = Hibernates.getPropertyType(this.sessionFactory, this.model, property);
-		Class<?> meta = Hibernates.getPropertyTypeClass(this.sessionFactory, type);
-		if (type.isEntityType() || type.isCollectionType()) {
-			ClassMetadata metadata = Hibernates.getClassMetadata(this.sessionFactory, meta);
-			Class<?> primaryType = metadata.getIdentifierType().getReturnedClass();
-			property = new StringBuilder(property).append('.').append(metadata.getIdentifierPropertyName()).toString();
+			this.subquery = sign > 0 ? Hibernates.getPropertyMetadata(this.sessionFactory, this.model,
+					property.substring(0, sign)).isCollection() : metadata.isCollection();
+		}
+		Class<?> meta = metadata.getTypeClass();
+		if (metadata.isAssociation()) {
+			if (metadata.getIdentifier() == null) {
+				throw new RuntimeException("Class metadata not found:" + meta.getName());
+			}
+			Class<?> primaryType = metadata.getIdentifierClass();
+			property = new StringBuilder(property).append('.').append(metadata.getIdentifier()).toString();
 			if (value instanceof Collection || value instanceof Object[]) {
 				Collection<?> values = value instanceof Collection ? (Collection<?>) value : Arrays
 						.asList((Object[]) value);
@@ -252,7 +879,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	 * @return 条件匹配对象
 	 */
 	protected Criterion getEmptyCriterion(String property) {
-		if (Hibernates.getPropertyType(this.sessionFactory, this.model, property).isCollectionType()) {
+		if (Hibernates.getPropertyMetadata(this.sessionFactory, this.model, property).isCollection()) {
 			return Restrictions.isEmpty(this.getCriteriaAlias(property));
 		}
 		return Restrictions.isNull(this.getCriteriaAlias(property));
@@ -269,7 +896,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 		int i = 0;
 		Criterion[] criterions = new Criterion[properties.size()];
 		for (String property : properties) {
-			if (Hibernates.getPropertyType(this.sessionFactory, this.model, property).isCollectionType()) {
+			if (Hibernates.getPropertyMetadata(this.sessionFactory, this.model, property).isCollection()) {
 				criterions[i++] = Restrictions.isEmpty(this.getCriteriaAlias(property));
 			} else {
 				criterions[i++] = Restrictions.isNull(this.getCriteriaAlias(property));
@@ -286,7 +913,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	 * @return 条件匹配对象
 	 */
 	protected Criterion getNonemptyCriterion(String property) {
-		if (Hibernates.getPropertyType(this.sessionFactory, this.model, property).isCollectionType()) {
+		if (Hibernates.getPropertyMetadata(this.sessionFactory, this.model, property).isCollection()) {
 			return Restrictions.isNotEmpty(this.getCriteriaAlias(property));
 		}
 		return Restrictions.isNotNull(this.getCriteriaAlias(property));
@@ -303,7 +930,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 		int i = 0;
 		Criterion[] criterions = new Criterion[properties.size()];
 		for (String property : properties) {
-			if (Hibernates.getPropertyType(this.sessionFactory, this.model, property).isCollectionType()) {
+			if (Hibernates.getPropertyMetadata(this.sessionFactory, this.model, property).isCollection()) {
 				criterions[i++] = Restrictions.isNotEmpty(this.getCriteriaAlias(property));
 			} else {
 				criterions[i++] = Restrictions.isNotNull(this.getCriteriaAlias(property));
@@ -424,7 +1051,41 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	 */
 	protected Criterion getStartCriterion(String property, String value) {
 		ConditionWrapper condition = this.getConditionWrapper(property, null);
-		return Restrictions.ilike(this.getCriteriaAlias(condition.getProperty()), value, MatchMode.START);
+		String alias = this.getCriteriaAlias(condition.getProperty());
+		if (this.isTreeKey(property)) {
+			return this.getTreeKeyCriterion(alias, value);
+		}
+		return Restrictions.ilike(alias, value, MatchMode.START);
+	}
+
+	/**
+	 * 判断属性是否为树标识
+	 * 
+	 * @param property
+	 *            属性名称
+	 * @return true/false
+	 */
+	protected boolean isTreeKey(String property) {
+		return property.equals("key") && TreeModel.class.isAssignableFrom(this.model);
+	}
+
+	/**
+	 * 获取树标识前缀匹配对象
+	 * 
+	 * 使用范围条件代替模糊匹配，以便使用树标识索引：标识大于或等于前缀，且小于树标识编码计算的前缀后继标识；不存在后继标识时使用模糊匹配
+	 * 
+	 * @param alias
+	 *            属性描述名称
+	 * @param prefix
+	 *            标识前缀
+	 * @return 条件匹配对象
+	 */
+	protected Criterion getTreeKeyCriterion(String alias, String prefix) {
+		String bound = Repositories.getTreeKeyCodec().getSuccessorKey(prefix);
+		if (bound == null) {
+			return Restrictions.like(alias, prefix, MatchMode.START);
+		}
+		return Restrictions.and(Restrictions.ge(alias, prefix), Restrictions.lt(alias, bound));
 	}
 
 	/**
@@ -440,9 +1101,11 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 		int i = 0;
 		ConditionWrapper condition = this.getConditionWrapper(property, null);
 		String alias = this.getCriteriaAlias(condition.getProperty());
+		boolean key = this.isTreeKey(property);
 		Criterion[] criterions = new Criterion[values.size()];
 		for (String value : values) {
-			criterions[i++] = Restrictions.ilike(alias, value, MatchMode.START);
+			criterions[i++] = key ? this.getTreeKeyCriterion(alias, value) : Restrictions.ilike(alias, value,
+					MatchMode.START);
 		}
 		return values.size() == 1 ? criterions[0] : Restrictions.or(criterions);
 	}
@@ -926,6 +1589,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> empty(String... properties) {
 		if (properties != null && properties.length > 0) {
+			this.sign("empty", properties, null);
 			if (properties.length == 1) {
 				this.criteria.add(this.getEmptyCriterion(properties[0]));
 			} else {
@@ -938,6 +1602,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> nonempty(String... properties) {
 		if (properties != null && properties.length > 0) {
+			this.sign("nonempty", properties, null);
 			if (properties.length == 1) {
 				this.criteria.add(this.getNonemptyCriterion(properties[0]));
 			} else {
@@ -950,6 +1615,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> eq(String property, Object value) {
 		if (property != null && value != null) {
+			this.sign("eq", property, value);
 			this.criteria.add(this.getEqualCriterion(property, value));
 		}
 		return this;
@@ -958,6 +1624,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> ne(String property, Object value) {
 		if (property != null && value != null) {
+			this.sign("ne", property, value);
 			this.criteria.add(this.getNotEqualCriterion(property, value));
 		}
 		return this;
@@ -966,6 +1633,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> gt(String property, Object value) {
 		if (property != null && value != null) {
+			this.sign("gt", property, value);
 			this.criteria.add(this.getGreaterCriterion(property, value));
 		}
 		return this;
@@ -974,6 +1642,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> ge(String property, Object value) {
 		if (property != null && value != null) {
+			this.sign("ge", property, value);
 			this.criteria.add(this.getGreaterEqualCriterion(property, value));
 		}
 		return this;
@@ -982,6 +1651,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> lt(String property, Object value) {
 		if (property != null && value != null) {
+			this.sign("lt", property, value);
 			this.criteria.add(this.getLessCriterion(property, value));
 		}
 		return this;
@@ -990,6 +1660,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> le(String property, Object value) {
 		if (property != null && value != null) {
+			this.sign("le", property, value);
 			this.criteria.add(this.getLessEqualCriterion(property, value));
 		}
 		return this;
@@ -998,6 +1669,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> between(String property, Object low, Object high) {
 		if (property != null && low != null && high != null) {
+			this.sign("between", property, new Object[] { low, high });
 			this.criteria.add(this.getBetweenCriterion(property, low, high));
 		}
 		return this;
@@ -1006,6 +1678,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> start(String property, String... values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("start", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getStartCriterion(property, values[0]));
 			} else {
@@ -1018,6 +1691,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> nstart(String property, String... values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("nstart", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getNstartCriterion(property, values[0]));
 			} else {
@@ -1030,6 +1704,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> end(String property, String... values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("end", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getEndCriterion(property, values[0]));
 			} else {
@@ -1042,6 +1717,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> nend(String property, String... values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("nend", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getNendCriterion(property, values[0]));
 			} else {
@@ -1054,6 +1730,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> like(String property, String... values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("like", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getLikeCriterion(property, values[0]));
 			} else {
@@ -1066,6 +1743,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> nlike(String property, String... values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("nlike", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getNlikeCriterion(property, values[0]));
 			} else {
@@ -1078,6 +1756,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> in(String property, Object[] values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("in", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getEqualCriterion(property, values[0]));
 			} else {
@@ -1090,6 +1769,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> or(String property, Object[] values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("or", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getEqualCriterion(property, values[0]));
 			} else {
@@ -1102,6 +1782,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> not(String property, Object[] values) {
 		if (property != null && values != null && values.length > 0) {
+			this.sign("not", property, values);
 			if (values.length == 1) {
 				this.criteria.add(this.getNotEqualCriterion(property, values[0]));
 			} else {
@@ -1154,6 +1835,10 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 			if (!Beans.isEmpty(value)) {
 				this.size = Integer.parseInt(value.toString());
 			}
+		} else if (lproperty.equals(AFTER)) {
+			if (!Beans.isEmpty(value)) {
+				this.after(Beans.toArray(Object.class, value));
+			}
 		} else if (lproperty.equals(ORDER)) {
 			if (value instanceof Collection) {
 				for (String order : (Collection<String>) value) {
@@ -1191,6 +1876,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> condition(Condition condition) {
 		if (condition != null) {
+			this.sign("condition", null, condition);
 			Criterion criterion = this.getConditionCriterion(condition);
 			if (criterion != null) {
 				this.criteria.add(criterion);
@@ -1202,6 +1888,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> condition(String property, Object value) {
 		if (property != null) {
+			this.sign("condition", property, value);
 			Criterion criterion = this.getConditionCriterion(property, value);
 			if (criterion != null) {
 				this.criteria.add(criterion);
@@ -1223,6 +1910,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> eqProperty(String property, String other) {
 		if (property != null && other != null) {
+			this.sign("eqProperty", property, other);
 			this.criteria.add(this.getPropertyEqualCriterion(property, other));
 		}
 		return this;
@@ -1231,6 +1919,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> neProperty(String property, String other) {
 		if (property != null && other != null) {
+			this.sign("neProperty", property, other);
 			this.criteria.add(this.getPropertyNotEqualCriterion(property, other));
 		}
 		return this;
@@ -1239,6 +1928,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> ltProperty(String property, String other) {
 		if (property != null && other != null) {
+			this.sign("ltProperty", property, other);
 			this.criteria.add(this.getPropertyLessCriterion(property, other));
 		}
 		return this;
@@ -1247,6 +1937,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> leProperty(String property, String other) {
 		if (property != null && other != null) {
+			this.sign("leProperty", property, other);
 			this.criteria.add(this.getPropertyLessEqualCriterion(property, other));
 		}
 		return this;
@@ -1255,6 +1946,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> gtProperty(String property, String other) {
 		if (property != null && other != null) {
+			this.sign("gtProperty", property, other);
 			this.criteria.add(this.getPropertyGreaterCriterion(property, other));
 		}
 		return this;
@@ -1263,6 +1955,7 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	@Override
 	public Query<T> geProperty(String property, String other) {
 		if (property != null && other != null) {
+			this.sign("geProperty", property, other);
 			this.criteria.add(this.getPropertyGreaterEqualCriterion(property, other));
 		}
 		return this;
@@ -1301,6 +1994,14 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 		return this;
 	}
 
+	@Override
+	public Query<T> after(Object... values) {
+		if (values != null && values.length > 0) {
+			this.after = values;
+		}
+		return this;
+	}
+
 	@Override
 	public Query<T> min(String... properties) {
 		if (properties != null && properties.length > 0) {
@@ -1377,28 +2078,61 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 			if (this.loaded) {
 				this.count = this.objects.size();
 			} else {
-				Session session = this.sessionFactory.openSession();
-				try {
-					this.count = (int) ((Long) this.getExecutableCriteria(session)
-							.setProjection(Projections.rowCount()).uniqueResult()).longValue();
-				} finally {
-					session.close();
-				}
+				this.count = this.getTotal();
 			}
 		}
 		return this.count;
 	}
 
+	/**
+	 * 从数据库中统计数据总量
+	 * 
+	 * @return 数据总量
+	 */
+	protected int getTotal() {
+		String key = this.getCacheKey("count");
+		Integer total = (Integer) this.getCacheValue(key);
+		if (total != null) {
+			return total;
+		}
+		Session current = Hibernates.getCurrentSession(this.sessionFactory);
+		Session session = current == null ? Hibernates.openReadonlySession(this.sessionFactory) : current;
+		try {
+			this.prepare(this.getExecutableOrders());
+			total = (int) ((Long) this.criteria.getCountCriteria().getExecutableCriteria(session).uniqueResult())
+					.longValue();
+			this.setCacheValue(key, total);
+			return total;
+		} finally {
+			if (session != current) {
+				session.close();
+			}
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public T single() {
 		if (!this.loaded) {
 			this.loaded = true;
-			Session session = this.sessionFactory.openSession();
+			String key = this.getCacheKey("single");
+			Serializable id = (Serializable) this.getCacheValue(key);
+			Session current = Hibernates.getCurrentSession(this.sessionFactory);
+			Session session = current == null ? Hibernates.openReadonlySession(this.sessionFactory) : current;
 			try {
-				this.object = (T) this.getExecutableCriteria(session).uniqueResult();
+				List<T> objects = id == null ? null : this.getCacheObjects(session, Arrays.asList(id));
+				if (objects == null) {
+					this.object = (T) this.getExecutableCriteria(session).uniqueResult();
+					if (key != null && this.object != null) {
+						this.setCacheValue(key, Hibernates.getIdentifier(this.sessionFactory, this.object));
+					}
+				} else {
+					this.object = objects.get(0);
+				}
 			} finally {
-				session.close();
+				if (session != current) {
+					session.close();
+				}
 			}
 		}
 		return this.object;
@@ -1409,16 +2143,54 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 	public List<T> list() {
 		if (!this.loaded) {
 			this.loaded = true;
-			Session session = this.sessionFactory.openSession();
+			String key = this.getCacheKey("list");
+			List<Serializable> identifiers = (List<Serializable>) this.getCacheValue(key);
+			Session current = Hibernates.getCurrentSession(this.sessionFactory);
+			Session session = current == null ? Hibernates.openReadonlySession(this.sessionFactory) : current;
 			try {
-				this.objects = this.getExecutableCriteria(session).list();
+				this.objects = identifiers == null ? null : this.getCacheObjects(session, identifiers);
+				if (this.objects == null) {
+					this.objects = this.getExecutableCriteria(session).list();
+					if (key != null) {
+						this.setCacheValue(key, this.getIdentifiers(this.objects));
+					}
+				}
 			} finally {
-				session.close();
+				if (session != current) {
+					session.close();
+				}
 			}
 		}
 		return this.objects;
 	}
 
+	@Override
+	public Page<T> page() {
+		long version = TOTAL_VERSION.get();
+		List<T> rows = this.list();
+		if (this.size < 1) {
+			return new Page<T>(rows, rows.size());
+		}
+		int offset = this.after == null ? Math.max(this.page - 1, 0) * this.size : 0;
+		String fingerprint = this.after == null ? this.getFingerprint() : null; // 键集分页的数据总量与起始值相关，不缓存
+		if (rows.size() < this.size && (offset == 0 || !rows.isEmpty())) {
+			this.count = offset + rows.size();
+			if (fingerprint != null && !this.isWriting()) {
+				setCacheTotal(this.model, fingerprint, this.count, version);
+			}
+		} else if (this.count == null) {
+			Integer total = fingerprint == null ? null : getCacheTotal(this.model, fingerprint);
+			if (total == null) {
+				total = this.getTotal();
+				if (fingerprint != null && !this.isWriting()) {
+					setCacheTotal(this.model, fingerprint, total, version);
+				}
+			}
+			this.count = Math.max(total, offset + rows.size());
+		}
+		return new Page<T>(rows, this.count);
+	}
+
 	@Override
 	public List<?> stats() {
 		if (!this.loaded) {
@@ -1426,7 +2198,13 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 			if (this.projections.getLength() == 0) {
 				throw new RuntimeException("The projections can't be empty");
 			}
-			Session session = this.sessionFactory.openSession();
+			String key = this.getCacheKey("stats");
+			this.stats = (List<?>) this.getCacheValue(key);
+			if (this.stats != null) {
+				return this.stats;
+			}
+			Session current = Hibernates.getCurrentSession(this.sessionFactory);
+			Session session = current == null ? Hibernates.openReadonlySession(this.sessionFactory) : current;
 			try {
 				this.stats = this.getExecutableCriteria(session).setProjection(this.projections).list();
 				Iterator<?> iterator = this.stats.iterator();
@@ -1435,11 +2213,37 @@ public class DetachedCriteriaQuery<T> implements Query<T> {
 						iterator.remove();
 					}
 				}
+				if (isScalar(this.stats)) {
+					this.setCacheValue(key, this.stats);
+				}
 			} finally {
-				session.close();
+				if (session != current) {
+					session.close();
+				}
 			}
 		}
 		return this.stats;
 	}
 
+	@Override
+	public Cursor<T> cursor() {
+		return this.cursor(DEFAULT_FETCH_SIZE);
+	}
+
+	@Override
+	public Cursor<T> cursor(int fetchSize) {
+		if (fetchSize < 1) {
+			throw new IllegalArgumentException("Illegal fetchSize:" + fetchSize);
+		}
+		Session session = Hibernates.openReadonlySession(this.sessionFactory);
+		try {
+			ScrollableResults results = this.getExecutableCriteria(session).setFetchSize(fetchSize)
+					.setReadOnly(true).setCacheMode(CacheMode.IGNORE).scroll(ScrollMode.FORWARD_ONLY);
+			return new ScrollableCursor<T>(session, results, fetchSize);
+		} catch (RuntimeException e) {
+			session.close();
+			throw e;
+		}
+	}
+
 }
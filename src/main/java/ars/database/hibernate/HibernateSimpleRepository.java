@@ -1,13 +1,44 @@
 package ars.database.hibernate;
 
+import java.util.Map;
+import java.util.Date;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.io.Serializable;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
 
 import org.hibernate.Session;
+import org.hibernate.jdbc.Work;
+import org.hibernate.Transaction;
 import org.hibernate.SessionFactory;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.type.Type;
+import org.hibernate.id.IdentifierGenerator;
+import org.hibernate.engine.spi.EntityKey;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+import org.hibernate.persister.entity.AbstractEntityPersister;
 
+import ars.util.Beans;
+import ars.database.model.TreeModel;
 import ars.database.repository.Query;
+import ars.database.repository.UnitOfWork;
+import ars.database.repository.Repositories;
 import ars.database.repository.AbstractRepository;
+import ars.database.hibernate.Hibernates;
 import ars.database.hibernate.DetachedCriteriaQuery;
+import ars.database.hibernate.PooledIdentifierGenerator;
 
 /**
  * 基于Hibernate数据持久化操作简单实现
@@ -18,7 +49,32 @@ import ars.database.hibernate.DetachedCriteriaQuery;
  *            数据模型
  */
 public class HibernateSimpleRepository<T> extends AbstractRepository<T> {
+	/**
+	 * 闭包表后缀
+	 */
+	public static final String CLOSURE_TABLE_SUFFIX = "_CLOSURE";
+
+	private boolean closure; // 是否使用闭包表维护树节点关系
+	private String closureTable; // 闭包表名称
 	private SessionFactory sessionFactory;
+	private volatile boolean closurePrepared; // 闭包表是否已初始化
+	private volatile Boolean counted; // 是否维护树节点子节点数量
+
+	public boolean isClosure() {
+		return closure;
+	}
+
+	public void setClosure(boolean closure) {
+		this.closure = closure;
+	}
+
+	public String getClosureTable() {
+		return closureTable;
+	}
+
+	public void setClosureTable(String closureTable) {
+		this.closureTable = closureTable;
+	}
 
 	public SessionFactory getSessionFactory() {
 		return sessionFactory;
@@ -37,27 +93,770 @@ public class HibernateSimpleRepository<T> extends AbstractRepository<T> {
 		if (this.sessionFactory == null) {
 			throw new RuntimeException("Session factory has not been initialize");
 		}
-		Session session = this.sessionFactory.getCurrentSession();
-		session.clear();
-		return session;
+		return this.sessionFactory.getCurrentSession();
+	}
+
+	@Override
+	protected void afterCompletion(Object key, Runnable task) {
+		Hibernates.afterCompletion(Hibernates.getCurrentSession(this.sessionFactory), key, task);
+	}
+
+	@Override
+	protected boolean isWriting() {
+		return Hibernates.isWriting(Hibernates.getCurrentSession(this.sessionFactory));
+	}
+
+	/**
+	 * 清除数据模型的数据总量缓存（立即清除并在事务完成后再次清除）
+	 */
+	protected void evictTotal() {
+		final Class<T> model = this.getModel();
+		DetachedCriteriaQuery.evictTotal(model);
+		this.afterCompletion(Arrays.asList(model, "total"), new Runnable() {
+
+			@Override
+			public void run() {
+				DetachedCriteriaQuery.evictTotal(model);
+			}
+
+		});
+	}
+
+	/**
+	 * 将对象实体从会话中分离，以便作为游离对象重新关联到会话
+	 * 
+	 * 只读加载的对象实体及会话中主键相同的其他实例将被移除，会话中其他对象实体及未提交的持久化操作不受影响
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @param object
+	 *            对象实体
+	 */
+	protected void detach(Session session, T object) {
+		if (session.contains(object)) {
+			if (session.isReadOnly(object)) {
+				session.evict(object);
+			}
+			return;
+		}
+		SessionImplementor implementor = (SessionImplementor) session;
+		EntityPersister persister = implementor.getEntityPersister(null, object);
+		Serializable id = persister.getIdentifier(object, implementor);
+		if (id == null) {
+			return;
+		}
+		EntityKey key = implementor.generateEntityKey(id, persister);
+		Object exists = implementor.getPersistenceContext().getEntity(key);
+		if (exists != null) {
+			if (!session.isReadOnly(exists)) {
+				session.flush();
+			}
+			session.evict(exists);
+		}
+	}
+
+	@Override
+	protected Serializable allocate(T object) {
+		SessionImplementor session = (SessionImplementor) this.getSession();
+		EntityPersister persister = session.getEntityPersister(null, object);
+		IdentifierGenerator generator = persister.getIdentifierGenerator();
+		if (!(generator instanceof PooledIdentifierGenerator)) {
+			return null;
+		}
+		PooledIdentifierGenerator pooled = (PooledIdentifierGenerator) generator;
+		Serializable id = persister.getIdentifier(object, session);
+		if (!pooled.isAllocated(id)) { // 已存在的主键不是预分配的主键时重新分配
+			id = pooled.allocate(session, object);
+			persister.setIdentifier(object, id, session);
+		}
+		return id;
+	}
+
+	@Override
+	protected void release() {
+		if (this.sessionFactory == null) {
+			throw new RuntimeException("Session factory has not been initialize");
+		}
+		IdentifierGenerator generator = ((SessionFactoryImplementor) this.sessionFactory).getEntityPersister(
+				this.getModel().getName()).getIdentifierGenerator();
+		if (generator instanceof PooledIdentifierGenerator) {
+			((PooledIdentifierGenerator) generator).release();
+		}
+	}
+
+	@Override
+	protected void move(String source, String target, int offset) {
+		String bound = Repositories.getTreeKeyCodec().getSuccessorKey(source);
+		Session session = this.getSession();
+		session.flush();
+		org.hibernate.Query query = session.createQuery(new StringBuilder("update ")
+				.append(this.getModel().getName())
+				.append(" o set o.key = concat(:target, substring(o.key, :start, length(o.key)))")
+				.append(", o.level = o.level + :offset where o.key > :source and ")
+				.append(bound == null ? "o.key like :bound" : "o.key < :bound").toString());
+		query.setString("target", target).setInteger("start", source.length() + 1).setInteger("offset", offset)
+				.setString("source", source).setString("bound", bound == null ? source + '%' : bound).executeUpdate();
+		this.evictTotal();
+
+		// 移除会话中已被批量修改的子孙节点
+		List<Object> relates = new ArrayList<Object>();
+		for (Object entity : ((SessionImplementor) session).getPersistenceContext().getEntitiesByKey().values()) {
+			if (this.getModel().isInstance(entity)) {
+				String key = ((TreeModel<?>) entity).getKey();
+				if (key != null && key.length() > source.length() && key.startsWith(source)) {
+					relates.add(entity);
+				}
+			}
+		}
+		for (Object relate : relates) {
+			session.evict(relate);
+		}
+	}
+
+	/**
+	 * 判断是否维护树节点子节点数量
+	 * 
+	 * 子节点数量属性需要映射为不可修改（update="false"），避免修改对象实体时使用内存中的子节点数量覆盖数据库中已调整的子节点数量
+	 * 
+	 * @return true/false
+	 */
+	@Override
+	protected boolean isCounted() {
+		if (this.counted == null) {
+			boolean counted = false;
+			if (TreeModel.class.isAssignableFrom(this.getModel())) {
+				EntityPersister persister = ((SessionFactoryImplementor) this.sessionFactory).getEntityPersister(this
+						.getModel().getName());
+				Integer index = persister.getEntityMetamodel().getPropertyIndexOrNull("childCount");
+				counted = index != null && !persister.getPropertyUpdateability()[index];
+			}
+			this.counted = counted;
+		}
+		return this.counted;
+	}
+
+	@Override
+	protected void resize(String key, int delta) {
+		Session session = this.getSession();
+		String name = this.getModel().getName();
+		int count = session
+				.createQuery(
+						new StringBuilder("update ").append(name)
+								.append(" o set o.leaf = case when o.childCount + :delta > 0 then :branch else :leaf end")
+								.append(", o.childCount = o.childCount + :delta")
+								.append(" where o.key = :key and o.childCount is not null").toString())
+				.setInteger("delta", delta).setBoolean("branch", false).setBoolean("leaf", true).setString("key", key)
+				.executeUpdate();
+		if (count == 0) { // 子节点数量尚未统计
+			count = ((Number) session
+					.createQuery(
+							new StringBuilder("select count(o) from ").append(name)
+									.append(" o where o.parent.key = :key").toString()).setString("key", key)
+					.uniqueResult()).intValue();
+			count = Math.max(count + delta, 0);
+			session.createQuery(
+					new StringBuilder("update ").append(name)
+							.append(" o set o.leaf = :leaf, o.childCount = :count where o.key = :key").toString())
+					.setBoolean("leaf", count == 0).setInteger("count", count).setString("key", key).executeUpdate();
+		}
+		this.evictTotal();
+
+		// 移除会话中已被批量修改的树节点
+		List<Object> nodes = new ArrayList<Object>(1);
+		for (Object entity : ((SessionImplementor) session).getPersistenceContext().getEntitiesByKey().values()) {
+			if (this.getModel().isInstance(entity) && key.equals(((TreeModel<?>) entity).getKey())) {
+				nodes.add(entity);
+			}
+		}
+		for (Object node : nodes) {
+			session.evict(node);
+		}
+	}
+
+	/**
+	 * 重新统计所有树节点的子节点数量并同步叶节点标识（新增子节点数量字段后的数据迁移），在独立的会话及事务中执行
+	 * 
+	 * 子节点数量为空的树节点也会在首次调整子节点数量时自动统计，该方法用于一次性完成历史数据迁移
+	 */
+	public void recount() {
+		if (!this.isCounted()) {
+			return;
+		}
+		String name = this.getModel().getName();
+		String primary = this.getPrimary();
+		Session session = this.sessionFactory.openSession();
+		try {
+			Transaction transaction = session.beginTransaction();
+			try {
+				session.createQuery(
+						new StringBuilder("update ").append(name).append(" o set o.leaf = :leaf, o.childCount = 0")
+								.toString()).setBoolean("leaf", true).executeUpdate();
+				List<?> counts = session.createQuery(
+						new StringBuilder("select o.parent.").append(primary).append(", count(o) from ").append(name)
+								.append(" o where o.parent is not null group by o.parent.").append(primary)
+								.toString()).list();
+				org.hibernate.Query update = session.createQuery(new StringBuilder("update ").append(name)
+						.append(" o set o.leaf = :leaf, o.childCount = :count where o.").append(primary)
+						.append(" = :id").toString());
+				for (Object count : counts) {
+					Object[] values = (Object[]) count;
+					update.setBoolean("leaf", false).setInteger("count", ((Number) values[1]).intValue())
+							.setParameter("id", values[0]).executeUpdate();
+				}
+				transaction.commit();
+			} catch (RuntimeException e) {
+				transaction.rollback();
+				throw e;
+			}
+		} finally {
+			session.close();
+		}
+		this.evictTotal();
+		this.evictQueryCache();
+		this.clearCache();
+	}
+
+	/**
+	 * 判断是否使用闭包表维护树节点关系
+	 * 
+	 * @return true/false
+	 */
+	protected boolean isClosureEnabled() {
+		return this.closure && TreeModel.class.isAssignableFrom(this.getModel());
+	}
+
+	/**
+	 * 获取实体主键字段名称
+	 * 
+	 * @return 字段名称
+	 */
+	protected String getIdentifierColumn() {
+		return ((AbstractEntityPersister) Hibernates.getClassMetadata(this.sessionFactory, this.getModel()))
+				.getIdentifierColumnNames()[0];
+	}
+
+	/**
+	 * 准备闭包表，闭包表不存在时自动创建并根据树节点标识初始化数据（在独立的会话及事务中执行，应在系统启动时调用）
+	 */
+	public synchronized void prepareClosureTable() {
+		if (!this.isClosureEnabled() || this.closurePrepared) {
+			return;
+		}
+		if (this.closureTable == null) {
+			this.closureTable = ((AbstractEntityPersister) Hibernates.getClassMetadata(this.sessionFactory,
+					this.getModel())).getTableName() + CLOSURE_TABLE_SUFFIX;
+		}
+		Session session = this.sessionFactory.openSession();
+		try {
+			Transaction transaction = session.beginTransaction();
+			try {
+				this.initializeClosureTable(session, this.closureTable);
+				transaction.commit();
+			} catch (RuntimeException e) {
+				transaction.rollback();
+				throw e;
+			}
+		} finally {
+			session.close();
+		}
+		this.closurePrepared = true;
+	}
+
+	/**
+	 * 获取已准备的闭包表名称
+	 * 
+	 * @return 闭包表名称
+	 */
+	protected String getPreparedClosureTable() {
+		if (!this.closurePrepared) {
+			throw new RuntimeException("Closure table has not been initialize:" + this.getModel());
+		}
+		return this.closureTable;
+	}
+
+	/**
+	 * 初始化闭包表
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @param table
+	 *            闭包表名称
+	 */
+	@SuppressWarnings("unchecked")
+	protected void initializeClosureTable(Session session, final String table) {
+		final boolean[] created = new boolean[1];
+		session.doWork(new Work() {
+
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				DatabaseMetaData metadata = connection.getMetaData();
+				for (String name : new String[] { table, table.toUpperCase(), table.toLowerCase() }) {
+					ResultSet resultSet = metadata.getTables(null, null, name, null);
+					try {
+						if (resultSet.next()) {
+							return;
+						}
+					} finally {
+						resultSet.close();
+					}
+				}
+				Statement statement = connection.createStatement();
+				try {
+					statement.executeUpdate(new StringBuilder("create table ").append(table)
+							.append(" (ANCESTOR_ integer not null, DESCENDANT_ integer not null, DEPTH_ integer not null")
+							.append(", primary key (ANCESTOR_, DESCENDANT_))").toString());
+					statement.executeUpdate(new StringBuilder("create index ").append(table).append("_DESCENDANT on ")
+							.append(table).append(" (DESCENDANT_, ANCESTOR_)").toString());
+				} finally {
+					statement.close();
+				}
+				created[0] = true;
+			}
+
+		});
+		if (!created[0]) {
+			return;
+		}
+
+		// 根据已有树节点标识生成节点关系
+		List<Object[]> nodes = session
+				.createQuery(new StringBuilder("select o.id, o.key from ").append(this.getModel().getName())
+						.append(" o").toString())
+				.list();
+		final Map<String, Integer> identifiers = new HashMap<String, Integer>(nodes.size());
+		for (Object[] node : nodes) {
+			identifiers.put((String) node[1], (Integer) node[0]);
+		}
+		session.doWork(new Work() {
+
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = connection.prepareStatement(new StringBuilder("insert into ")
+						.append(table).append(" (ANCESTOR_, DESCENDANT_, DEPTH_) values (?, ?, ?)").toString());
+				try {
+					int count = 0;
+					int batch = getBatchSize();
+					for (Map.Entry<String, Integer> entry : identifiers.entrySet()) {
+						String[] parents = Repositories.getAncestorKeys(entry.getKey());
+						for (int i = 0; i <= parents.length; i++) {
+							Integer ancestor = i == parents.length ? entry.getValue() : identifiers.get(parents[i]);
+							if (ancestor == null) {
+								continue;
+							}
+							statement.setInt(1, ancestor);
+							statement.setInt(2, entry.getValue());
+							statement.setInt(3, parents.length - i);
+							statement.addBatch();
+							if (++count % batch == 0) {
+								statement.executeBatch();
+							}
+						}
+					}
+					if (count % batch > 0) {
+						statement.executeBatch();
+					}
+				} finally {
+					statement.close();
+				}
+			}
+
+		});
+	}
+
+	@Override
+	protected void link(T tree) {
+		this.link(Collections.singletonList(tree));
+	}
+
+	/**
+	 * 批量建立树节点与祖先节点的关系，父节点需排列在子节点之前
+	 * 
+	 * 新增树节点的祖先关系根据父节点的祖先关系在内存中计算，不属于当前批次的父节点只查询一次，所有关系通过JDBC批处理一次写入
+	 * 
+	 * @param trees
+	 *            树节点列表
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected void link(List<T> trees) {
+		if (!this.isClosureEnabled() || trees.isEmpty()) {
+			return;
+		}
+		final String table = this.getPreparedClosureTable();
+		Session session = this.getSession();
+		Map<Integer, List<int[]>> paths = new HashMap<Integer, List<int[]>>(); // 树节点主键/祖先节点（主键、深度）
+		final List<int[]> relations = new ArrayList<int[]>(trees.size());
+		for (T tree : trees) {
+			TreeModel<?> node = (TreeModel<?>) tree;
+			TreeModel<?> parent = node.getParent();
+			List<int[]> path = new ArrayList<int[]>(node.getLevel() == null ? 1 : node.getLevel());
+			path.add(new int[] { node.getId(), 0 });
+			if (parent != null) {
+				List<int[]> ancestors = paths.get(parent.getId());
+				if (ancestors == null) { // 父节点不属于当前批次
+					List<Object[]> rows = session
+							.createSQLQuery(
+									new StringBuilder("select ANCESTOR_, DEPTH_ from ").append(table)
+											.append(" where DESCENDANT_ = :parent").toString())
+							.setInteger("parent", parent.getId()).list();
+					ancestors = new ArrayList<int[]>(rows.size());
+					for (Object[] row : rows) {
+						ancestors.add(new int[] { ((Number) row[0]).intValue(), ((Number) row[1]).intValue() });
+					}
+					paths.put(parent.getId(), ancestors);
+				}
+				for (int[] ancestor : ancestors) {
+					path.add(new int[] { ancestor[0], ancestor[1] + 1 });
+				}
+			}
+			paths.put(node.getId(), path);
+			for (int[] ancestor : path) {
+				relations.add(new int[] { ancestor[0], node.getId(), ancestor[1] });
+			}
+		}
+		session.doWork(new Work() {
+
+			@Override
+			public void execute(Connection connection) throws SQLException {
+				PreparedStatement statement = connection.prepareStatement(new StringBuilder("insert into ")
+						.append(table).append(" (ANCESTOR_, DESCENDANT_, DEPTH_) values (?, ?, ?)").toString());
+				try {
+					int count = 0;
+					int batch = getBatchSize();
+					for (int[] relation : relations) {
+						statement.setInt(1, relation[0]);
+						statement.setInt(2, relation[1]);
+						statement.setInt(3, relation[2]);
+						statement.addBatch();
+						if (++count % batch == 0) {
+							statement.executeBatch();
+						}
+					}
+					if (count % batch > 0) {
+						statement.executeBatch();
+					}
+				} finally {
+					statement.close();
+				}
+			}
+
+		});
+	}
+
+	@Override
+	protected void relink(T tree) {
+		if (!this.isClosureEnabled()) {
+			return;
+		}
+		String table = this.getPreparedClosureTable();
+		TreeModel<?> node = (TreeModel<?>) tree;
+		Session session = this.getSession();
+		session.flush();
+
+		// 移除子树与原祖先节点的关系（子查询包装为派生表以兼容MySQL）
+		String subtree = new StringBuilder("select DESCENDANT_ from (select DESCENDANT_ from ").append(table)
+				.append(" where ANCESTOR_ = :id) %s").toString();
+		session.createSQLQuery(
+				new StringBuilder("delete from ").append(table).append(" where DESCENDANT_ in (")
+						.append(String.format(subtree, "d")).append(") and ANCESTOR_ not in (")
+						.append(String.format(subtree, "a")).append(")").toString())
+				.setInteger("id", node.getId()).executeUpdate();
+		if (node.getParent() != null) {
+			session.createSQLQuery(
+					new StringBuilder("insert into ").append(table)
+							.append(" (ANCESTOR_, DESCENDANT_, DEPTH_) select a.ANCESTOR_, d.DESCENDANT_, a.DEPTH_ + d.DEPTH_ + 1")
+							.append(" from ").append(table).append(" a, ").append(table)
+							.append(" d where a.DESCENDANT_ = :parent and d.ANCESTOR_ = :id").toString())
+					.setInteger("parent", node.getParent().getId()).setInteger("id", node.getId()).executeUpdate();
+		}
+	}
+
+	@Override
+	protected void unlink(T tree) {
+		if (!this.isClosureEnabled()) {
+			return;
+		}
+		// 移除子树中所有节点的关系（子查询包装为派生表以兼容MySQL）
+		String table = this.getPreparedClosureTable();
+		this.getSession()
+				.createSQLQuery(new StringBuilder("delete from ").append(table)
+						.append(" where DESCENDANT_ in (select DESCENDANT_ from (select DESCENDANT_ from ")
+						.append(table).append(" where ANCESTOR_ = :id) d)").toString())
+				.setInteger("id", ((TreeModel<?>) tree).getId()).executeUpdate();
+	}
+
+	@Override
+	public Query<T> ancestors(T tree) {
+		if (!this.isClosureEnabled() || tree == null || ((TreeModel<?>) tree).getId() == null) {
+			return super.ancestors(tree);
+		}
+		return this.getClosureQuery(
+				new StringBuilder("select ANCESTOR_ from ").append(this.getPreparedClosureTable())
+						.append(" where DESCENDANT_ = ").append(((TreeModel<?>) tree).getId())
+						.append(" and DEPTH_ > 0").toString());
+	}
+
+	@Override
+	public Query<T> descendants(T tree, int depth) {
+		if (!this.isClosureEnabled() || tree == null || ((TreeModel<?>) tree).getId() == null) {
+			return super.descendants(tree, depth);
+		}
+		StringBuilder sql = new StringBuilder("select DESCENDANT_ from ").append(this.getPreparedClosureTable())
+				.append(" where ANCESTOR_ = ").append(((TreeModel<?>) tree).getId()).append(" and DEPTH_ > 0");
+		if (depth > 0) {
+			sql.append(" and DEPTH_ <= ").append(depth);
+		}
+		return this.getClosureQuery(sql.toString());
+	}
+
+	/**
+	 * 根据闭包表子查询构建树节点查询对象
+	 * 
+	 * 主键以字面量拼接，以保证查询缓存键能够区分不同节点
+	 * 
+	 * @param subquery
+	 *            闭包表子查询语句
+	 * @return 数据查询对象
+	 */
+	protected Query<T> getClosureQuery(String subquery) {
+		DetachedCriteriaQuery<T> query = new DetachedCriteriaQuery<T>(this.sessionFactory, this.getModel());
+		query.getDetachedCriteria().add(Restrictions.sqlRestriction(
+				new StringBuilder("{alias}.").append(this.getIdentifierColumn()).append(" in (").append(subquery)
+						.append(")").toString()));
+		return query;
+	}
+
+	@Override
+	public void activate(Collection<T> trees, boolean active, String updater) {
+		if (trees == null) {
+			throw new IllegalArgumentException("Illegal trees:" + trees);
+		}
+		if (trees.isEmpty()) {
+			return;
+		}
+		Date date = new Date();
+		Session session = this.getSession();
+		session.flush();
+		StringBuilder hql = new StringBuilder("update ").append(this.getModel().getName())
+				.append(" o set o.active = :active, o.dateUpdate = :date");
+		if (updater != null) {
+			hql.append(", o.updater = :updater");
+		}
+		hql.append(" where o.").append(this.getPrimary()).append(" in (:ids)");
+		org.hibernate.Query query = session.createQuery(hql.toString()).setBoolean("active", active)
+				.setParameter("date", date);
+		if (updater != null) {
+			query.setString("updater", updater);
+		}
+		List<Integer> ids = new ArrayList<Integer>(Math.min(trees.size(), this.getBatchSize()));
+		for (T tree : trees) {
+			ids.add(((TreeModel<?>) tree).getId());
+			if (ids.size() == this.getBatchSize()) {
+				query.setParameterList("ids", ids).executeUpdate();
+				ids.clear();
+			}
+		}
+		if (!ids.isEmpty()) {
+			query.setParameterList("ids", ids).executeUpdate();
+		}
+
+		// 同步内存状态并移除会话及缓存中已被批量修改的树节点
+		List<String> keys = new ArrayList<String>(trees.size());
+		for (T tree : trees) {
+			keys.add(((TreeModel<?>) tree).getKey());
+			((TreeModel<?>) tree).setActive(active);
+			((TreeModel<?>) tree).setDateUpdate(date);
+			if (updater != null) {
+				((TreeModel<?>) tree).setUpdater(updater);
+			}
+			if (session.contains(tree)) {
+				session.evict(tree);
+			} else {
+				this.detach(session, tree);
+			}
+			this.evictCache(tree);
+		}
+		this.evictTotal();
+		this.evictQueryCache();
+		this.refreshSnapshot(null, null, keys.toArray(new String[keys.size()]));
+	}
+
+	/**
+	 * 在独立的会话及事务中重新编排同级数据排序值，以便在后台线程中执行
+	 * 
+	 * @param parent
+	 *            父节点标识，根节点或非树模型为null
+	 */
+	@SuppressWarnings("unchecked")
+	@Override
+	protected void rebalance(String parent) {
+		if (this.sessionFactory == null) {
+			throw new RuntimeException("Session factory has not been initialize");
+		}
+		boolean tree = TreeModel.class.isAssignableFrom(this.getModel());
+		String name = this.getModel().getName();
+		String primary = this.getPrimary();
+		StringBuilder hql = new StringBuilder("select o.").append(primary).append(", o.order");
+		if (tree) {
+			hql.append(", o.key from ").append(name).append(" o where o.parent")
+					.append(parent == null ? " is null" : ".key = :parent");
+		} else {
+			hql.append(" from ").append(name).append(" o");
+		}
+		hql.append(" order by o.order, o.").append(primary);
+		List<String> keys = new ArrayList<String>();
+		Session session = this.sessionFactory.openSession();
+		try {
+			Transaction transaction = session.beginTransaction();
+			try {
+				org.hibernate.Query query = session.createQuery(hql.toString());
+				if (tree && parent != null) {
+					query.setString("parent", parent);
+				}
+				List<Object[]> siblings = query.list();
+				org.hibernate.Query update = session.createQuery(new StringBuilder("update ").append(name)
+						.append(" o set o.order = :order where o.").append(primary).append(" = :id").toString());
+				for (int i = 0; i < siblings.size(); i++) {
+					Object[] sibling = siblings.get(i);
+					if (sibling[1] == null || ((Number) sibling[1]).doubleValue() != i + 1) {
+						update.setDouble("order", i + 1).setParameter("id", sibling[0]).executeUpdate();
+						if (tree) {
+							keys.add((String) sibling[2]);
+						}
+					}
+				}
+				transaction.commit();
+			} catch (RuntimeException e) {
+				transaction.rollback();
+				throw e;
+			}
+		} finally {
+			session.close();
+		}
+		this.clearCache();
+		this.evictTotal();
+		this.evictQueryCache();
+		this.refreshSnapshot(null, null, keys.toArray(new String[keys.size()]));
+	}
+
+	@Override
+	protected void flush(List<T> objects) {
+		Session session = this.getSession();
+		session.flush();
+		for (T object : objects) {
+			if (session.contains(object)) {
+				session.evict(object);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	protected T lookup(Object id) {
+		if (this.sessionFactory == null) {
+			throw new RuntimeException("Session factory has not been initialize");
+		}
+		Class<?> type = Hibernates.getPropertyMetadata(this.sessionFactory, this.getModel(), this.getPrimary())
+				.getTypeClass();
+		Serializable key = (Serializable) Beans.toObject(type, id);
+		Session current = Hibernates.getCurrentSession(this.sessionFactory);
+		if (current == null) {
+			Session session = Hibernates.openReadonlySession(this.sessionFactory);
+			try {
+				return (T) session.get(this.getModel(), key);
+			} finally {
+				session.close();
+			}
+		}
+		return (T) current.get(this.getModel(), key);
 	}
 
 	@Override
 	protected void modify(T object) {
 		if (object != null) {
-			this.getSession().update(object);
+			Session session = this.getSession();
+			this.detach(session, object);
+			if (!this.modifyDirty(session, object)) {
+				session.update(object);
+			}
+			this.evictTotal();
 		}
 	}
 
+	/**
+	 * 仅修改对象实体中发生变化的属性
+	 * 
+	 * 将对象实体重新关联到会话后，以当前工作单元中从数据库加载的对象实体副本的属性值作为实体条目的加载状态，由会话在刷新时进行脏检查，
+	 * 从而触发修改事件监听器并进行版本检查；映射为动态修改（dynamic-update，createEntityConfigure默认生成）时只更新发生变化的属性，
+	 * 除修改时间外没有属性变化时不执行更新。
+	 * 对象实体未在当前请求中从数据库加载、已关联到会话或包含集合属性时返回false，由调用方更新全部属性
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @param object
+	 *            对象实体
+	 * @return true/false
+	 */
+	protected boolean modifyDirty(Session session, T object) {
+		UnitOfWork unit = UnitOfWork.getCurrent();
+		if (unit == null || session.contains(object)) {
+			return false;
+		}
+		SessionImplementor implementor = (SessionImplementor) session;
+		EntityPersister persister = implementor.getEntityPersister(null, object);
+		Serializable id = persister.getIdentifier(object, implementor);
+		Object loaded = id instanceof Integer ? unit.get(this.getModel(), (Integer) id) : null;
+		if (loaded == null || loaded.getClass() != object.getClass()) {
+			return false;
+		}
+		Type[] types = persister.getPropertyTypes();
+		String[] names = persister.getPropertyNames();
+		boolean[] updateables = persister.getPropertyUpdateability();
+		Object[] previous = persister.getPropertyValues(loaded);
+		Object[] current = persister.getPropertyValues(object);
+		int stamp = -1; // 修改时间属性下标
+		boolean dirty = false; // 除修改时间外是否存在属性变化
+		for (int i = 0; i < names.length; i++) {
+			if (types[i].isCollectionType()) {
+				return false;
+			} else if (!updateables[i] || !types[i].isDirty(previous[i], current[i], implementor)) {
+				continue;
+			} else if (names[i].equals("dateUpdate")) {
+				stamp = i;
+			} else {
+				dirty = true;
+			}
+		}
+		if (!dirty && stamp > -1) { // 没有属性变化，修改时间保持原值
+			persister.setPropertyValue(object, stamp, previous[stamp]);
+		}
+		if (persister.isVersioned()) { // 以调用方持有的版本进行版本检查
+			int version = persister.getVersionProperty();
+			previous[version] = current[version];
+		}
+		session.update(object);
+		EntityEntry entry = implementor.getPersistenceContext().getEntry(object);
+		entry.postUpdate(object, previous, entry.getVersion());
+		return true;
+	}
+
 	@Override
 	protected Serializable insert(T object) {
-		return object == null ? null : this.getSession().save(object);
+		if (object == null) {
+			return null;
+		}
+		Serializable id = this.getSession().save(object);
+		this.evictTotal();
+		return id;
 	}
 
 	@Override
 	protected void remove(T object) {
 		if (object != null) {
-			this.getSession().delete(object);
+			Session session = this.getSession();
+			this.detach(session, object);
+			session.delete(object);
+			this.evictTotal();
 		}
 	}
 
@@ -9,6 +9,11 @@ import java.util.HashSet;
 import java.util.ArrayList;
 import java.util.Map.Entry;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.io.File;
 import java.io.IOException;
 import java.io.Serializable;
@@ -18,13 +23,21 @@ import java.io.OutputStreamWriter;
 import java.net.URLDecoder;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
+import javax.transaction.Synchronization;
 
 import org.hibernate.Session;
+import org.hibernate.FlushMode;
 import org.hibernate.Hibernate;
+import org.hibernate.NullPrecedence;
+import org.hibernate.Transaction;
 import org.hibernate.SessionFactory;
+import org.hibernate.HibernateException;
 import org.hibernate.type.Type;
 import org.hibernate.type.CollectionType;
 import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.criterion.Restrictions;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.persister.entity.EntityPersister;
 import org.hibernate.engine.spi.SessionFactoryImplementor;
 
 import ars.util.Beans;
@@ -33,6 +46,7 @@ import ars.database.model.Model;
 import ars.database.model.TreeModel;
 import ars.database.repository.Query;
 import ars.database.hibernate.DetachedCriteriaQuery;
+import ars.database.hibernate.PooledIdentifierGenerator;
 
 /**
  * Hibernate操作工具类
@@ -41,10 +55,110 @@ import ars.database.hibernate.DetachedCriteriaQuery;
  * 
  */
 public final class Hibernates {
+	/**
+	 * 批量加载对象实体时每条IN查询的主键数量
+	 */
+	public static final int IN_CHUNK_SIZE = 500;
+
+	/**
+	 * 会话工厂/数据模型/属性元数据缓存（属性映射类型引用会话工厂，会话工厂关闭后需要移除）
+	 */
+	private static final ConcurrentMap<SessionFactory, ConcurrentMap<Class<?>, ConcurrentMap<String, PropertyMetadata>>> PROPERTY_METADATA_CACHE = new ConcurrentHashMap<SessionFactory, ConcurrentMap<Class<?>, ConcurrentMap<String, PropertyMetadata>>>();
+
+	/**
+	 * 当前线程存在写操作的事务及事务完成后需要执行的任务
+	 */
+	private static final ThreadLocal<Completion> COMPLETION = new ThreadLocal<Completion>();
+
 	private Hibernates() {
 
 	}
 
+	/**
+	 * 事务完成任务（同一事务中相同标识的任务只执行一次）
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	static final class Completion implements Synchronization {
+		final Transaction transaction; // 事务对象
+		final Map<Object, Runnable> tasks = new LinkedHashMap<Object, Runnable>(); // 任务标识/任务
+
+		Completion(Transaction transaction) {
+			this.transaction = transaction;
+		}
+
+		@Override
+		public void beforeCompletion() {
+		}
+
+		@Override
+		public void afterCompletion(int status) {
+			if (COMPLETION.get() == this) {
+				COMPLETION.remove();
+			}
+			for (Runnable task : this.tasks.values()) {
+				task.run();
+			}
+		}
+
+	}
+
+	/**
+	 * 模型属性元数据（属性路径解析结果）
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	public static final class PropertyMetadata {
+		private final Type type; // 属性映射类型
+		private final Class<?> typeClass; // 属性类型（集合属性为元素类型）
+		private final String identifier; // 关联模型主键名称
+		private final Class<?> identifierClass; // 关联模型主键类型
+
+		public PropertyMetadata(Type type, Class<?> typeClass, String identifier, Class<?> identifierClass) {
+			this.type = type;
+			this.typeClass = typeClass;
+			this.identifier = identifier;
+			this.identifierClass = identifierClass;
+		}
+
+		public Type getType() {
+			return type;
+		}
+
+		public Class<?> getTypeClass() {
+			return typeClass;
+		}
+
+		public String getIdentifier() {
+			return identifier;
+		}
+
+		public Class<?> getIdentifierClass() {
+			return identifierClass;
+		}
+
+		/**
+		 * 是否是集合属性
+		 * 
+		 * @return true/false
+		 */
+		public boolean isCollection() {
+			return this.type.isCollectionType();
+		}
+
+		/**
+		 * 是否是关联实体属性（多对一或实体集合）
+		 * 
+		 * @return true/false
+		 */
+		public boolean isAssociation() {
+			return this.type.isEntityType() || this.type.isCollectionType();
+		}
+
+	}
+
 	/**
 	 * 获取数据模型元对象
 	 * 
@@ -161,17 +275,232 @@ public final class Hibernates {
 	 * @return 类型对象
 	 */
 	public static Type getPropertyType(SessionFactory sessionFactory, Class<?> model, String property) {
+		return getPropertyMetadata(sessionFactory, model, property).getType();
+	}
+
+	/**
+	 * 获取当前线程绑定的会话
+	 * 
+	 * @param sessionFactory
+	 *            会话工厂
+	 * @return 会话对象，如果当前线程未绑定会话则返回null
+	 */
+	public static Session getCurrentSession(SessionFactory sessionFactory) {
+		try {
+			return sessionFactory.getCurrentSession();
+		} catch (HibernateException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * 在会话当前事务完成（提交或回滚）后执行任务，并将当前事务标记为存在写操作；会话不存在活动事务时立即执行任务
+	 * 
+	 * 共享缓存的失效操作需要在事务完成后再次执行，避免并发读取在事务提交前将旧数据重新写入缓存
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @param key
+	 *            任务标识，同一事务中相同标识的任务只执行一次
+	 * @param task
+	 *            任务对象
+	 */
+	public static void afterCompletion(Session session, Object key, Runnable task) {
+		if (key == null) {
+			throw new IllegalArgumentException("Illegal key:" + key);
+		}
+		if (task == null) {
+			throw new IllegalArgumentException("Illegal task:" + task);
+		}
+		Transaction transaction = session == null ? null : session.getTransaction();
+		if (transaction == null || !transaction.isActive()) {
+			task.run();
+			return;
+		}
+		Completion completion = COMPLETION.get();
+		if (completion == null || completion.transaction != transaction) {
+			completion = new Completion(transaction);
+			transaction.registerSynchronization(completion);
+			COMPLETION.set(completion);
+		}
+		if (!completion.tasks.containsKey(key)) {
+			completion.tasks.put(key, task);
+		}
+	}
+
+	/**
+	 * 判断会话当前事务是否存在写操作（存在写操作的事务中查询到的数据可能未提交，不能写入共享缓存）
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @return true/false
+	 */
+	public static boolean isWriting(Session session) {
+		Completion completion = COMPLETION.get();
+		return completion != null && session != null && completion.transaction == session.getTransaction()
+				&& completion.transaction.isActive();
+	}
+
+	/**
+	 * 打开只读会话（加载对象不保存快照、不做脏数据检查，且不会自动刷新）
+	 * 
+	 * @param sessionFactory
+	 *            会话工厂
+	 * @return 会话对象
+	 */
+	public static Session openReadonlySession(SessionFactory sessionFactory) {
+		Session session = sessionFactory.openSession();
+		session.setDefaultReadOnly(true);
+		session.setFlushMode(FlushMode.MANUAL);
+		return session;
+	}
+
+	/**
+	 * 渲染指定空值排序的排序语句（供不支持nulls first/last语法的数据库方言使用）
+	 * 
+	 * 指定的空值排序与数据库默认空值排序一致时直接返回排序语句，以便数据库使用索引顺序扫描；否则使用case表达式模拟空值排序
+	 * 
+	 * @param expression
+	 *            排序表达式
+	 * @param order
+	 *            排序方向（asc/desc）
+	 * @param nulls
+	 *            空值排序
+	 * @param element
+	 *            不包含空值排序的排序语句
+	 * @param lowest
+	 *            数据库默认是否将空值视为最小值
+	 * @return 排序语句
+	 */
+	public static String renderOrderByElement(String expression, String order, NullPrecedence nulls, String element,
+			boolean lowest) {
+		if (nulls == null || nulls == NullPrecedence.NONE) {
+			return element;
+		}
+		boolean asc = order == null || !order.equalsIgnoreCase("desc");
+		if ((nulls == NullPrecedence.FIRST) == (asc == lowest)) {
+			return element;
+		}
+		return new StringBuilder("case when ").append(expression).append(" is null then ")
+				.append(nulls == NullPrecedence.FIRST ? "0 else 1" : "1 else 0").append(" end, ").append(element)
+				.toString();
+	}
+
+	/**
+	 * 获取模型属性元数据（解析结果按会话工厂缓存）
+	 * 
+	 * @param sessionFactory
+	 *            会话工厂
+	 * @param model
+	 *            数据模型
+	 * @param property
+	 *            属性名称，可使用“.”号隔开
+	 * @return 属性元数据
+	 */
+	public static PropertyMetadata getPropertyMetadata(SessionFactory sessionFactory, Class<?> model,
+			String property) {
+		ConcurrentMap<Class<?>, ConcurrentMap<String, PropertyMetadata>> models = PROPERTY_METADATA_CACHE
+				.get(sessionFactory);
+		if (models == null) {
+			for (SessionFactory factory : PROPERTY_METADATA_CACHE.keySet()) { // 移除已关闭会话工厂的缓存
+				if (factory.isClosed()) {
+					PROPERTY_METADATA_CACHE.remove(factory);
+				}
+			}
+			models = new ConcurrentHashMap<Class<?>, ConcurrentMap<String, PropertyMetadata>>();
+			ConcurrentMap<Class<?>, ConcurrentMap<String, PropertyMetadata>> exist = PROPERTY_METADATA_CACHE
+					.putIfAbsent(sessionFactory, models);
+			if (exist != null) {
+				models = exist;
+			}
+		}
+		ConcurrentMap<String, PropertyMetadata> properties = models.get(model);
+		if (properties == null) {
+			properties = new ConcurrentHashMap<String, PropertyMetadata>();
+			ConcurrentMap<String, PropertyMetadata> exist = models.putIfAbsent(model, properties);
+			if (exist != null) {
+				properties = exist;
+			}
+		}
+		PropertyMetadata metadata = properties.get(property);
+		if (metadata == null) {
+			metadata = resolvePropertyMetadata(sessionFactory, model, property);
+			PropertyMetadata exist = properties.putIfAbsent(property, metadata);
+			if (exist != null) {
+				metadata = exist;
+			}
+		}
+		return metadata;
+	}
+
+	/**
+	 * 解析模型属性元数据
+	 * 
+	 * @param sessionFactory
+	 *            会话工厂
+	 * @param model
+	 *            数据模型
+	 * @param property
+	 *            属性名称，可使用“.”号隔开
+	 * @return 属性元数据
+	 */
+	private static PropertyMetadata resolvePropertyMetadata(SessionFactory sessionFactory, Class<?> model,
+			String property) {
 		int index = property.indexOf('.');
 		if (index > 0) {
-			Type type = getPropertyType(sessionFactory, model, property.substring(0, index));
-			return getPropertyType(sessionFactory, getPropertyTypeClass(sessionFactory, type),
-					property.substring(index + 1));
+			PropertyMetadata parent = getPropertyMetadata(sessionFactory, model, property.substring(0, index));
+			return getPropertyMetadata(sessionFactory, parent.getTypeClass(), property.substring(index + 1));
 		}
+		Type type;
 		ClassMetadata metadata = getClassMetadata(sessionFactory, model);
 		if (metadata.hasIdentifierProperty() && metadata.getIdentifierPropertyName().equals(property)) {
-			return metadata.getIdentifierType();
+			type = metadata.getIdentifierType();
+		} else {
+			type = metadata.getPropertyType(property);
+		}
+		Class<?> typeClass = getPropertyTypeClass(sessionFactory, type);
+		if (type.isEntityType() || type.isCollectionType()) {
+			ClassMetadata foreign = sessionFactory.getClassMetadata(typeClass);
+			if (foreign != null) {
+				return new PropertyMetadata(type, typeClass, foreign.getIdentifierPropertyName(), foreign
+						.getIdentifierType().getReturnedClass());
+			}
+		}
+		return new PropertyMetadata(type, typeClass, null, null);
+	}
+
+	/**
+	 * 初始化会话工厂中所有数据模型的属性元数据缓存
+	 * 
+	 * @param sessionFactory
+	 *            会话工厂
+	 */
+	public static void initPropertyMetadata(SessionFactory sessionFactory) {
+		for (ClassMetadata metadata : sessionFactory.getAllClassMetadata().values()) {
+			Class<?> model = metadata.getMappedClass();
+			if (model == null) {
+				continue;
+			}
+			if (metadata.hasIdentifierProperty()) {
+				getPropertyMetadata(sessionFactory, model, metadata.getIdentifierPropertyName());
+			}
+			for (String property : metadata.getPropertyNames()) {
+				getPropertyMetadata(sessionFactory, model, property);
+			}
+		}
+	}
+
+	/**
+	 * 移除会话工厂的模型属性元数据缓存
+	 * 
+	 * @param sessionFactory
+	 *            会话工厂
+	 */
+	public static void clearPropertyMetadata(SessionFactory sessionFactory) {
+		if (sessionFactory == null) {
+			throw new IllegalArgumentException("Illegal sessionFactory:" + sessionFactory);
 		}
-		return metadata.getPropertyType(property);
+		PROPERTY_METADATA_CACHE.remove(sessionFactory);
 	}
 
 	/**
@@ -186,8 +515,7 @@ public final class Hibernates {
 	 * @return 属性类型
 	 */
 	public static Class<?> getPropertyClass(SessionFactory sessionFactory, Class<?> model, String property) {
-		Type type = getPropertyType(sessionFactory, model, property);
-		return getPropertyTypeClass(sessionFactory, type);
+		return getPropertyMetadata(sessionFactory, model, property).getTypeClass();
 	}
 
 	/**
@@ -256,16 +584,20 @@ public final class Hibernates {
 			return;
 		}
 		ClassMetadata metadata = getClassMetadata(sessionFactory, object.getClass());
-		Type type = metadata.getPropertyType(property);
-		Class<?> meta = getPropertyTypeClass(sessionFactory, type);
+		PropertyMetadata propertyMetadata = getPropertyMetadata(sessionFactory, object.getClass(), property);
+		Type type = propertyMetadata.getType();
+		Class<?> meta = propertyMetadata.getTypeClass();
 		if (type.isEntityType()) { // 多对一
 			if (value != null && !meta.isAssignableFrom(value.getClass())) {
-				Serializable id = (Serializable) Beans.toObject(getPrimaryClass(sessionFactory, meta), value);
-				Session session = sessionFactory.openSession();
+				Serializable id = (Serializable) Beans.toObject(propertyMetadata.getIdentifierClass(), value);
+				Session current = getCurrentSession(sessionFactory);
+				Session session = current == null ? openReadonlySession(sessionFactory) : current;
 				try {
 					value = session.get(meta, id);
 				} finally {
-					session.close();
+					if (session != current) {
+						session.close();
+					}
 				}
 			}
 			metadata.setPropertyValue(object, property, value);
@@ -274,30 +606,80 @@ public final class Hibernates {
 			Collection<Object> objects = Set.class.isAssignableFrom(type.getReturnedClass()) ? new HashSet<Object>(
 					values.length) : new ArrayList<Object>(values.length);
 			if (values.length > 0) {
-				Session session = null;
-				Class<?> foreignPrimaryClass = getPrimaryClass(sessionFactory, meta);
-				try {
-					for (Object v : values) {
-						if (v != null && !meta.isAssignableFrom(v.getClass())) {
-							if (session == null) {
-								session = sessionFactory.openSession();
-							}
-							Serializable id = (Serializable) Beans.toObject(foreignPrimaryClass, v);
-							v = session.get(meta, id);
-						}
-						if (v != null) {
-							objects.add(v);
+				Class<?> foreignPrimaryClass = propertyMetadata.getIdentifierClass();
+				Set<Serializable> identifiers = new LinkedHashSet<Serializable>(values.length);
+				for (int i = 0; i < values.length; i++) {
+					if (values[i] != null && !meta.isAssignableFrom(values[i].getClass())) {
+						values[i] = Beans.toObject(foreignPrimaryClass, values[i]);
+						identifiers.add((Serializable) values[i]);
+					}
+				}
+				Map<Serializable, Object> references = Collections.emptyMap();
+				if (!identifiers.isEmpty()) {
+					Session current = getCurrentSession(sessionFactory);
+					Session session = current == null ? openReadonlySession(sessionFactory) : current;
+					try {
+						references = getObjects(session, meta, identifiers);
+					} finally {
+						if (session != current) {
+							session.close();
 						}
 					}
-				} finally {
-					if (session != null) {
-						session.close();
+				}
+				for (Object v : values) {
+					if (v != null && !meta.isAssignableFrom(v.getClass())) {
+						v = references.get(v);
+					}
+					if (v != null) {
+						objects.add(v);
 					}
 				}
 			}
 			metadata.setPropertyValue(object, property, objects);
+		} else {
+			metadata.setPropertyValue(object, property, Beans.toObject(meta, value));
 		}
-		metadata.setPropertyValue(object, property, Beans.toObject(meta, value));
+	}
+
+	/**
+	 * 根据主键批量获取对象实体（已在会话中的对象实体直接使用，其他对象实体按批次通过IN查询加载）
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @param model
+	 *            数据模型
+	 * @param identifiers
+	 *            主键集合
+	 * @return 主键/对象实体映射，不存在的对象实体不包含在内
+	 */
+	public static Map<Serializable, Object> getObjects(Session session, Class<?> model,
+			Collection<Serializable> identifiers) {
+		if (session == null) {
+			throw new IllegalArgumentException("Illegal session:" + session);
+		}
+		if (model == null) {
+			throw new IllegalArgumentException("Illegal model:" + model);
+		}
+		Map<Serializable, Object> objects = new HashMap<Serializable, Object>(identifiers.size());
+		SessionImplementor implementor = (SessionImplementor) session;
+		EntityPersister persister = implementor.getFactory().getEntityPersister(model.getName());
+		List<Serializable> loads = new ArrayList<Serializable>(identifiers.size());
+		for (Serializable id : identifiers) {
+			Object exists = implementor.getPersistenceContext().getEntity(implementor.generateEntityKey(id, persister));
+			if (exists == null) {
+				loads.add(id);
+			} else {
+				objects.put(id, exists);
+			}
+		}
+		String primary = persister.getIdentifierPropertyName();
+		for (int i = 0; i < loads.size(); i += IN_CHUNK_SIZE) {
+			List<Serializable> chunk = loads.subList(i, Math.min(i + IN_CHUNK_SIZE, loads.size()));
+			for (Object entity : session.createCriteria(model).add(Restrictions.in(primary, chunk)).list()) {
+				objects.put(persister.getIdentifier(entity, implementor), entity);
+			}
+		}
+		return objects;
 	}
 
 	/**
@@ -542,11 +924,19 @@ public final class Hibernates {
 					writer.write("<hibernate-mapping>");
 					writer.newLine();
 					writer.write("\t<class name=\"" + model.getName() + "\" table=\""
-							+ getNameString(model.getSimpleName()) + "\">");
+							+ getNameString(model.getSimpleName()) + "\" dynamic-update=\"true\">");
 					writer.newLine();
 					writer.write("\t\t<id name=\"id\" column=\"ID_\" type=\"int\">");
 					writer.newLine();
-					writer.write("\t\t\t<generator class=\"native\"/>");
+					writer.write("\t\t\t<generator class=\"" + PooledIdentifierGenerator.class.getName() + "\">");
+					writer.newLine();
+					writer.write("\t\t\t\t<param name=\"optimizer\">pooled</param>");
+					writer.newLine();
+					writer.write("\t\t\t\t<param name=\"increment_size\">50</param>");
+					writer.newLine();
+					writer.write("\t\t\t\t<param name=\"prefer_entity_table_as_segment_value\">true</param>");
+					writer.newLine();
+					writer.write("\t\t\t</generator>");
 					writer.newLine();
 					writer.write("\t\t</id>");
 
@@ -575,6 +965,9 @@ public final class Hibernates {
 											|| (TreeModel.class.isAssignableFrom(model) && name.equals("level"))) {
 										writer.write("\t\t<property name=\"" + name + "\" column=\"" + column
 												+ "_\" type=\"int\" not-null=\"true\"/>");
+									} else if (TreeModel.class.isAssignableFrom(model) && name.equals("childCount")) {
+										writer.write("\t\t<property name=\"" + name + "\" column=\"" + column
+												+ "_\" type=\"int\" update=\"false\"/>");
 									} else {
 										writer.write("\t\t<property name=\"" + name + "\" column=\"" + column
 												+ "_\" type=\"int\"/>");
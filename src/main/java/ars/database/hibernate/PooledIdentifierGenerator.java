@@ -0,0 +1,74 @@
+package ars.database.hibernate;
+
+import java.util.Set;
+import java.util.HashSet;
+import java.io.Serializable;
+
+import org.hibernate.id.enhanced.TableGenerator;
+import org.hibernate.engine.spi.SessionImplementor;
+
+/**
+ * 池化主键生成器
+ * 
+ * 基于主键表按批次分配主键；通过allocate方法预分配的主键在插入时直接使用，对象实体上其他已存在的主键（复制的对象实体或手动设置的主键）将被忽略并重新分配；
+ * 预分配主键后必须在同一线程中调用release方法释放未插入的主键；主键分配的并发控制由池化优化器完成
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class PooledIdentifierGenerator extends TableGenerator {
+	private final ThreadLocal<Set<Serializable>> allocations = new ThreadLocal<Set<Serializable>>(); // 当前线程已预分配且尚未插入的主键
+
+	/**
+	 * 预分配主键，插入对象实体时使用该主键
+	 * 
+	 * @param session
+	 *            会话对象
+	 * @param object
+	 *            对象实体
+	 * @return 主键
+	 */
+	public Serializable allocate(SessionImplementor session, Object object) {
+		Serializable id = super.generate(session, object);
+		Set<Serializable> ids = this.allocations.get();
+		if (ids == null) {
+			ids = new HashSet<Serializable>();
+			this.allocations.set(ids);
+		}
+		ids.add(id);
+		return id;
+	}
+
+	/**
+	 * 判断主键是否已由当前线程预分配且尚未插入
+	 * 
+	 * @param id
+	 *            主键
+	 * @return true/false
+	 */
+	public boolean isAllocated(Serializable id) {
+		Set<Serializable> ids = this.allocations.get();
+		return id != null && ids != null && ids.contains(id);
+	}
+
+	/**
+	 * 释放当前线程已预分配但尚未插入的主键（插入失败或放弃插入时）
+	 */
+	public void release() {
+		this.allocations.remove();
+	}
+
+	@Override
+	public Serializable generate(SessionImplementor session, Object object) {
+		Serializable id = session.getEntityPersister(null, object).getIdentifier(object, session);
+		Set<Serializable> ids = this.allocations.get();
+		if (id != null && ids != null && ids.remove(id)) {
+			if (ids.isEmpty()) {
+				this.allocations.remove();
+			}
+			return id;
+		}
+		return super.generate(session, object);
+	}
+
+}
@@ -2,6 +2,8 @@ package ars.database.hibernate;
 
 import java.sql.Types;
 
+import org.hibernate.NullPrecedence;
+
 /**
  * SQLServer数据库方言
  * 
@@ -16,4 +18,11 @@ public class SQLServerDialect extends org.hibernate.dialect.SQLServerDialect {
 		registerHibernateType(Types.LONGNVARCHAR, "string");
 	}
 
+	@Override
+	public String renderOrderByElement(String expression, String collation, String order, NullPrecedence nulls) {
+		// 不支持nulls first/last语法，默认将空值视为最小值
+		return Hibernates.renderOrderByElement(expression, order, nulls,
+				super.renderOrderByElement(expression, collation, order, NullPrecedence.NONE), true);
+	}
+
 }
@@ -2,6 +2,7 @@ package ars.database.hibernate;
 
 import java.sql.Types;
 
+import org.hibernate.NullPrecedence;
 import org.hibernate.dialect.Dialect;
 import org.hibernate.dialect.function.VarArgsSQLFunction;
 import org.hibernate.dialect.function.StandardSQLFunction;
@@ -165,4 +166,11 @@ public class SQLiteDialect extends Dialect {
 		return false;
 	}
 
+	@Override
+	public String renderOrderByElement(String expression, String collation, String order, NullPrecedence nulls) {
+		// 不支持nulls first/last语法，默认将空值视为最小值
+		return Hibernates.renderOrderByElement(expression, order, nulls,
+				super.renderOrderByElement(expression, collation, order, NullPrecedence.NONE), true);
+	}
+
 }
\ No newline at end of file
@@ -0,0 +1,96 @@
+package ars.database.hibernate;
+
+import java.util.NoSuchElementException;
+
+import org.hibernate.Session;
+import org.hibernate.ScrollableResults;
+
+import ars.database.repository.Cursor;
+
+/**
+ * 基于Hibernate滚动结果集的数据游标实现
+ * 
+ * 游标独占一个会话，每个数据对象交出后即从会话中移除，内存占用与结果集大小无关
+ * 
+ * @author yongqiangwu
+ * 
+ * @param <T>
+ *            数据模型
+ */
+public class ScrollableCursor<T> implements Cursor<T> {
+	private int count; // 已读取数量
+	private T current; // 预读数据对象
+	private boolean fetched; // 是否已预读
+	private boolean closed; // 是否已关闭
+	private final int fetchSize; // 抓取数量
+	private final Session session; // 游标专用会话
+	private final ScrollableResults results; // 滚动结果集
+
+	public ScrollableCursor(Session session, ScrollableResults results, int fetchSize) {
+		if (session == null) {
+			throw new IllegalArgumentException("Illegal session:" + session);
+		}
+		if (results == null) {
+			throw new IllegalArgumentException("Illegal results:" + results);
+		}
+		if (fetchSize < 1) {
+			throw new IllegalArgumentException("Illegal fetchSize:" + fetchSize);
+		}
+		this.session = session;
+		this.results = results;
+		this.fetchSize = fetchSize;
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public boolean hasNext() {
+		if (this.closed) {
+			return false;
+		}
+		if (!this.fetched) {
+			if (this.results.next()) {
+				this.current = (T) this.results.get(0);
+				this.fetched = true;
+			} else {
+				this.close();
+				return false;
+			}
+		}
+		return true;
+	}
+
+	@Override
+	public T next() {
+		if (!this.hasNext()) {
+			throw new NoSuchElementException();
+		}
+		T object = this.current;
+		this.current = null;
+		this.fetched = false;
+		if (++this.count % this.fetchSize == 0) {
+			this.session.clear();
+		} else if (object != null) {
+			this.session.evict(object);
+		}
+		return object;
+	}
+
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+
+	@Override
+	public void close() {
+		if (!this.closed) {
+			this.closed = true;
+			this.current = null;
+			try {
+				this.results.close();
+			} finally {
+				this.session.close();
+			}
+		}
+	}
+
+}
@@ -22,6 +22,7 @@ public abstract class AbstractTreeModel<T extends AbstractTreeModel<T>> extends
 	private String key; // 树标识
 	private Integer level = 1; // 所在树中的层级（从1开始）
 	private Boolean leaf = true; // 是否是叶节点
+	private Integer childCount = 0; // 子节点数量
 	private T parent; // 父节点
 	private List<T> children = new ArrayList<T>(0); // 子节点
 
@@ -55,6 +56,14 @@ public abstract class AbstractTreeModel<T extends AbstractTreeModel<T>> extends
 		this.leaf = leaf;
 	}
 
+	public Integer getChildCount() {
+		return childCount;
+	}
+
+	public void setChildCount(Integer childCount) {
+		this.childCount = childCount;
+	}
+
 	@Override
 	public T getParent() {
 		return parent;
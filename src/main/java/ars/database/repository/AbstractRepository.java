@@ -1,15 +1,36 @@
 package ars.database.repository;
 
+import java.util.Map;
+import java.util.Set;
 import java.util.Date;
 import java.util.List;
+import java.util.Arrays;
 import java.util.UUID;
+import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.LinkedHashSet;
+import java.util.Queue;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.io.Serializable;
+import java.lang.reflect.Field;
 
 import ars.util.Beans;
+import ars.util.AbstractTimerServer;
 import ars.database.model.Model;
 import ars.database.model.TreeModel;
 import ars.database.repository.Repository;
+import ars.database.repository.BatchListener;
 import ars.database.repository.Repositories;
+import ars.database.repository.UnitOfWork;
+import ars.database.repository.TreeSnapshot;
 
 /**
  * 数据持久操作抽象实现
@@ -20,7 +41,76 @@ import ars.database.repository.Repositories;
  *            数据模型
  */
 public abstract class AbstractRepository<T> implements Repository<T> {
+	/**
+	 * 实例缓存建议容量（实例缓存默认不启用，需要通过setCacheCapacity设置容量后启用）
+	 */
+	public static final int DEFAULT_CACHE_CAPACITY = 1000;
+
+	/**
+	 * 实例缓存默认有效时间（毫秒）
+	 */
+	public static final long DEFAULT_CACHE_TIMEOUT = 60 * 1000;
+
+	/**
+	 * 默认树节点内存快照有效时间（毫秒）
+	 */
+	public static final long DEFAULT_SNAPSHOT_TIMEOUT = 60 * 1000;
+
+	/**
+	 * 批量操作默认批次数据量
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 50;
+
+	/**
+	 * 排序值默认最小间隔，相邻排序值间隔小于该值时重新编排排序值
+	 */
+	public static final double DEFAULT_ORDER_PRECISION = 1e-6;
+
+	/**
+	 * 排序值重新编排时间间隔（秒）
+	 */
+	public static final int REBALANCE_INTERVAL = 60;
+
+	/**
+	 * 树节点锁默认分段数量
+	 */
+	public static final int DEFAULT_LOCK_STRIPES = 64;
+
+	/**
+	 * 树节点锁默认等待时间（毫秒）
+	 */
+	public static final long DEFAULT_LOCK_TIMEOUT = 30 * 1000;
+
 	private Class<T> model;
+	private boolean cacheable; // 是否可缓存实例
+	private int batchSize = DEFAULT_BATCH_SIZE; // 批次数据量
+	private boolean snapshot; // 是否启用树节点内存快照
+	private double orderPrecision = DEFAULT_ORDER_PRECISION; // 排序值最小间隔
+	private ReadWriteLock[] stripes = this.createStripes(DEFAULT_LOCK_STRIPES); // 树节点分段读写锁
+	private long lockTimeout = DEFAULT_LOCK_TIMEOUT; // 树节点锁等待时间
+	private final AtomicLong lockAcquisitions = new AtomicLong(); // 树节点锁获取次数
+	private final AtomicLong lockContentions = new AtomicLong(); // 树节点锁竞争次数
+	private final AtomicLong lockWaitTime = new AtomicLong(); // 树节点锁等待时间（纳秒）
+	private final Set<String> unbalances = new LinkedHashSet<String>(); // 待重新编排的同级分组（父节点标识）
+	private AbstractTimerServer rebalancer; // 排序值重新编排服务
+	private BatchListener batchListener; // 批量操作监听器
+	private volatile TreeSnapshot<T> treeSnapshot; // 树节点内存快照
+	private volatile long snapshotLoaded; // 树节点内存快照加载时间
+	private long snapshotTimeout = DEFAULT_SNAPSHOT_TIMEOUT; // 树节点内存快照有效时间
+	private final Queue<String[]> snapshotRefreshes = new ConcurrentLinkedQueue<String[]>(); // 事务完成后待同步的快照子树及节点标识
+	private int cacheCapacity; // 实例缓存容量（默认不缓存）
+	private long cacheTimeout = DEFAULT_CACHE_TIMEOUT; // 实例缓存有效时间
+	private final AtomicLong cacheHits = new AtomicLong(); // 实例缓存命中次数
+	private final AtomicLong cacheMisses = new AtomicLong(); // 实例缓存未命中次数
+	private final Map<Integer, Object[]> cache = new LinkedHashMap<Integer, Object[]>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Object[]> eldest) {
+			return this.size() > cacheCapacity;
+		}
+
+	};
 
 	@SuppressWarnings("unchecked")
 	public AbstractRepository() {
@@ -29,6 +119,894 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 			throw new RuntimeException("Generic type not found:" + this.getClass().getName());
 		}
 		this.model = (Class<T>) genericTypes[0];
+		this.cacheable = isCacheable(this.model);
+	}
+
+	/**
+	 * 判断数据模型实例是否可缓存
+	 * 
+	 * 缓存副本为浅复制，包含关联属性（对象实体、集合等非基本类型属性）的数据模型副本会与持久化对象共享代理对象或集合，因此不缓存
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @return true/false
+	 */
+	private static boolean isCacheable(Class<?> model) {
+		if (!Model.class.isAssignableFrom(model)) {
+			return false;
+		}
+		for (Field field : Beans.getFields(model)) {
+			Class<?> type = field.getType().isArray() ? field.getType().getComponentType() : field.getType();
+			if (!Beans.isMetaClass(type) && !type.isEnum()) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	public int getBatchSize() {
+		return batchSize;
+	}
+
+	public void setBatchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Illegal batchSize:" + batchSize);
+		}
+		this.batchSize = batchSize;
+	}
+
+	public BatchListener getBatchListener() {
+		return batchListener;
+	}
+
+	public void setBatchListener(BatchListener batchListener) {
+		this.batchListener = batchListener;
+	}
+
+	public boolean isSnapshot() {
+		return snapshot;
+	}
+
+	public void setSnapshot(boolean snapshot) {
+		this.snapshot = snapshot;
+		if (!snapshot) {
+			this.treeSnapshot = null;
+		}
+	}
+
+	public long getSnapshotTimeout() {
+		return snapshotTimeout;
+	}
+
+	/**
+	 * 设置树节点内存快照有效时间，超时后重新加载全部节点，以便读取其他进程的修改
+	 * 
+	 * @param snapshotTimeout
+	 *            有效时间（毫秒）
+	 */
+	public void setSnapshotTimeout(long snapshotTimeout) {
+		if (snapshotTimeout < 1) {
+			throw new IllegalArgumentException("Illegal snapshotTimeout:" + snapshotTimeout);
+		}
+		this.snapshotTimeout = snapshotTimeout;
+	}
+
+	public double getOrderPrecision() {
+		return orderPrecision;
+	}
+
+	public void setOrderPrecision(double orderPrecision) {
+		if (orderPrecision <= 0) {
+			throw new IllegalArgumentException("Illegal orderPrecision:" + orderPrecision);
+		}
+		this.orderPrecision = orderPrecision;
+	}
+
+	public int getLockStripes() {
+		return this.stripes.length;
+	}
+
+	public void setLockStripes(int lockStripes) {
+		if (lockStripes < 1) {
+			throw new IllegalArgumentException("Illegal lockStripes:" + lockStripes);
+		}
+		this.stripes = this.createStripes(lockStripes);
+	}
+
+	public long getLockTimeout() {
+		return lockTimeout;
+	}
+
+	/**
+	 * 设置树节点锁最长等待时间，超时后抛出异常以便回滚当前事务
+	 * 
+	 * @param lockTimeout
+	 *            等待时间（毫秒）
+	 */
+	public void setLockTimeout(long lockTimeout) {
+		if (lockTimeout < 1) {
+			throw new IllegalArgumentException("Illegal lockTimeout:" + lockTimeout);
+		}
+		this.lockTimeout = lockTimeout;
+	}
+
+	/**
+	 * 获取树节点锁获取次数
+	 * 
+	 * @return 获取次数
+	 */
+	public long getLockAcquisitions() {
+		return this.lockAcquisitions.get();
+	}
+
+	/**
+	 * 获取树节点锁竞争次数（无法立即获取锁的次数）
+	 * 
+	 * @return 竞争次数
+	 */
+	public long getLockContentions() {
+		return this.lockContentions.get();
+	}
+
+	/**
+	 * 获取树节点锁累计等待时间
+	 * 
+	 * @return 等待时间（毫秒）
+	 */
+	public long getLockWaitTime() {
+		return TimeUnit.NANOSECONDS.toMillis(this.lockWaitTime.get());
+	}
+
+	public int getCacheCapacity() {
+		return cacheCapacity;
+	}
+
+	/**
+	 * 设置实例缓存容量
+	 * 
+	 * 实例缓存仅在当前JVM内失效，多个节点同时修改相同数据时不要启用
+	 * 
+	 * @param cacheCapacity
+	 *            缓存容量，小于1时不缓存实例
+	 */
+	public void setCacheCapacity(int cacheCapacity) {
+		this.cacheCapacity = cacheCapacity;
+		this.clearCache();
+	}
+
+	public long getCacheTimeout() {
+		return cacheTimeout;
+	}
+
+	public void setCacheTimeout(long cacheTimeout) {
+		if (cacheTimeout < 1) {
+			throw new IllegalArgumentException("Illegal cacheTimeout:" + cacheTimeout);
+		}
+		this.cacheTimeout = cacheTimeout;
+	}
+
+	/**
+	 * 获取实例缓存命中次数
+	 * 
+	 * @return 命中次数
+	 */
+	public long getCacheHits() {
+		return this.cacheHits.get();
+	}
+
+	/**
+	 * 获取实例缓存未命中次数
+	 * 
+	 * @return 未命中次数
+	 */
+	public long getCacheMisses() {
+		return this.cacheMisses.get();
+	}
+
+	/**
+	 * 清除实例缓存（立即清除并在事务完成后再次清除）
+	 */
+	public void clearCache() {
+		synchronized (this.cache) {
+			this.cache.clear();
+		}
+		UnitOfWork.evictCurrent(this.model);
+		this.afterCompletion(Arrays.asList(this.model, "instances"), new Runnable() {
+
+			@Override
+			public void run() {
+				synchronized (cache) {
+					cache.clear();
+				}
+			}
+
+		});
+	}
+
+	/**
+	 * 从实例缓存中移除对象实体（立即移除并在事务完成后再次移除）
+	 * 
+	 * @param object
+	 *            对象实体
+	 */
+	protected void evictCache(Object object) {
+		if (this.cacheable && object instanceof Model) {
+			final Integer id = ((Model) object).getId();
+			if (id != null) {
+				synchronized (this.cache) {
+					this.cache.remove(id);
+				}
+				UnitOfWork.evictCurrent(this.model, id);
+				this.afterCompletion(Arrays.asList(this.model, "instance", id), new Runnable() {
+
+					@Override
+					public void run() {
+						synchronized (cache) {
+							cache.remove(id);
+						}
+					}
+
+				});
+			}
+		}
+	}
+
+	/**
+	 * 在当前事务完成（提交或回滚）后执行任务，不存在事务时立即执行
+	 * 
+	 * @param key
+	 *            任务标识，同一事务中相同标识的任务只执行一次
+	 * @param task
+	 *            任务对象
+	 */
+	protected void afterCompletion(Object key, Runnable task) {
+		task.run();
+	}
+
+	/**
+	 * 判断当前事务是否存在写操作，存在写操作时查询到的数据可能未提交，不能写入共享缓存
+	 * 
+	 * @return true/false
+	 */
+	protected boolean isWriting() {
+		return false;
+	}
+
+	/**
+	 * 清除数据模型的查询结果缓存（立即清除并在事务完成后再次清除）
+	 */
+	protected void evictQueryCache() {
+		Repositories.evictQueryCache(this.model);
+		this.afterCompletion(Arrays.asList(this.model, "query"), new Runnable() {
+
+			@Override
+			public void run() {
+				Repositories.evictQueryCache(model);
+			}
+
+		});
+	}
+
+	/**
+	 * 获取树节点内存快照，首次调用或快照超时时从数据库加载全部节点，并同步已完成事务修改的节点
+	 * 
+	 * @return 快照对象，如果未启用快照、数据模型不是树模型或当前事务存在写操作（需要读取未提交的修改）则返回null
+	 */
+	public TreeSnapshot<T> getTreeSnapshot() {
+		if (!this.snapshot || !TreeModel.class.isAssignableFrom(this.model) || this.isWriting()) {
+			return null;
+		}
+		TreeSnapshot<T> current = this.treeSnapshot;
+		if (current == null || !this.snapshotRefreshes.isEmpty()
+				|| System.currentTimeMillis() - this.snapshotLoaded > this.snapshotTimeout) {
+			synchronized (this) {
+				current = this.treeSnapshot;
+				if (current == null || System.currentTimeMillis() - this.snapshotLoaded > this.snapshotTimeout) {
+					this.snapshotRefreshes.clear();
+					this.snapshotLoaded = System.currentTimeMillis();
+					this.treeSnapshot = current = new TreeSnapshot<T>(this.model, this.query().list());
+				} else {
+					String[] keys;
+					while ((keys = this.snapshotRefreshes.poll()) != null) {
+						current = this.refreshSnapshot(current, keys);
+					}
+					this.treeSnapshot = current;
+				}
+			}
+		}
+		return current;
+	}
+
+	/**
+	 * 同步树节点内存快照，事务完成后在下次获取快照时从数据库重新加载（事务回滚时重新加载的节点与原节点一致）
+	 * 
+	 * @param removed
+	 *            需要移除的子树根节点标识
+	 * @param reloaded
+	 *            需要重新加载的子树根节点标识
+	 * @param keys
+	 *            需要重新加载的节点标识数组
+	 */
+	protected void refreshSnapshot(String removed, String reloaded, String... keys) {
+		if (this.treeSnapshot == null) {
+			return;
+		}
+		final String[] refreshes = new String[keys.length + 2];
+		refreshes[0] = removed;
+		refreshes[1] = reloaded;
+		System.arraycopy(keys, 0, refreshes, 2, keys.length);
+		this.afterCompletion(refreshes, new Runnable() {
+
+			@Override
+			public void run() {
+				snapshotRefreshes.add(refreshes);
+			}
+
+		});
+	}
+
+	/**
+	 * 从数据库重新加载快照中的子树及节点
+	 * 
+	 * @param snapshot
+	 *            快照对象
+	 * @param keys
+	 *            子树根节点标识（前两个元素，可为null）及节点标识数组
+	 * @return 新的快照对象
+	 */
+	private TreeSnapshot<T> refreshSnapshot(TreeSnapshot<T> snapshot, String[] keys) {
+		for (int i = 0; i < 2; i++) {
+			if (keys[i] != null) {
+				snapshot = snapshot.without(keys[i]).with(this.query().start("key", keys[i]).list());
+			}
+		}
+		List<String> reloads = new ArrayList<String>(keys.length);
+		for (int i = 2; i < keys.length; i++) {
+			if (keys[i] != null) {
+				reloads.add(keys[i]);
+			}
+		}
+		if (!reloads.isEmpty()) {
+			snapshot = snapshot.with(this.query().in("key", reloads.toArray()).list());
+		}
+		return snapshot;
+	}
+
+	/**
+	 * 创建树节点分段读写锁
+	 * 
+	 * @param count
+	 *            分段数量
+	 * @return 分段读写锁数组
+	 */
+	private ReadWriteLock[] createStripes(int count) {
+		ReadWriteLock[] stripes = new ReadWriteLock[count];
+		for (int i = 0; i < count; i++) {
+			stripes[i] = new ReentrantReadWriteLock();
+		}
+		return stripes;
+	}
+
+	/**
+	 * 锁定树节点
+	 * 
+	 * 对给定节点所在分段加写锁，对其祖先节点所在分段加读锁（同一分段同时需要读锁和写锁时只加写锁），各分段按序号顺序加锁；
+	 * 不同子树的修改只在公共祖先上共享读锁，可以并发执行。锁必须由加锁线程在finally中调用unlockTree释放；
+	 * 嵌套加锁时已持有读锁的分段无法升级为写锁，等待超过锁等待时间后抛出异常
+	 * 
+	 * @param keys
+	 *            树标识数组（忽略null）
+	 * @return 已获取的锁列表
+	 */
+	protected List<Lock> lockTree(String... keys) {
+		ReadWriteLock[] stripes = this.stripes;
+		Map<Integer, Boolean> indexes = new TreeMap<Integer, Boolean>(); // 分段序号/是否加写锁
+		for (String key : keys) {
+			if (key != null) {
+				for (String parent : Repositories.getAncestorKeys(key)) {
+					Integer index = (parent.hashCode() & Integer.MAX_VALUE) % stripes.length;
+					if (!indexes.containsKey(index)) {
+						indexes.put(index, Boolean.FALSE);
+					}
+				}
+			}
+		}
+		for (String key : keys) {
+			if (key != null) {
+				indexes.put((key.hashCode() & Integer.MAX_VALUE) % stripes.length, Boolean.TRUE);
+			}
+		}
+		List<Lock> locks = new ArrayList<Lock>(indexes.size());
+		try {
+			for (Map.Entry<Integer, Boolean> entry : indexes.entrySet()) {
+				ReadWriteLock stripe = stripes[entry.getKey()];
+				Lock lock = entry.getValue() ? stripe.writeLock() : stripe.readLock();
+				if (!lock.tryLock()) {
+					this.lockContentions.incrementAndGet();
+					long start = System.nanoTime();
+					boolean locked = lock.tryLock(this.lockTimeout, TimeUnit.MILLISECONDS);
+					this.lockWaitTime.addAndGet(System.nanoTime() - start);
+					if (!locked) {
+						throw new RuntimeException("Lock tree timeout:" + Arrays.toString(keys));
+					}
+				}
+				locks.add(lock);
+				this.lockAcquisitions.incrementAndGet();
+			}
+		} catch (InterruptedException e) {
+			this.release(locks);
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (RuntimeException e) {
+			this.release(locks);
+			throw e;
+		}
+		return locks;
+	}
+
+	/**
+	 * 释放树节点锁（必须由加锁线程调用）
+	 * 
+	 * @param locks
+	 *            已获取的锁列表
+	 */
+	protected void unlockTree(List<Lock> locks) {
+		if (locks != null && !locks.isEmpty()) {
+			this.release(locks);
+		}
+	}
+
+	/**
+	 * 立即释放锁
+	 * 
+	 * @param locks
+	 *            锁列表
+	 */
+	private void release(List<Lock> locks) {
+		for (int i = locks.size() - 1; i > -1; i--) {
+			locks.get(i).unlock();
+		}
+	}
+
+	/**
+	 * 获取同级数据查询对象
+	 * 
+	 * @param parent
+	 *            父节点标识，根节点或非树模型为null
+	 * @return 数据查询对象
+	 */
+	protected Query<T> getSiblingQuery(String parent) {
+		if (!TreeModel.class.isAssignableFrom(this.model)) {
+			return this.query();
+		}
+		return parent == null ? this.query().empty("parent") : this.query().eq("parent.key", parent);
+	}
+
+	/**
+	 * 调整对象排序值，仅修改当前对象；树节点只能在同级节点之间调整排序
+	 * 
+	 * @param object
+	 *            数据对象
+	 * @param target
+	 *            目标对象
+	 * @param before
+	 *            是否移动到目标对象之前
+	 */
+	protected void reorder(T object, T target, boolean before) {
+		if (!(object instanceof Model)) {
+			throw new IllegalArgumentException("Illegal object:" + object);
+		}
+		if (!(target instanceof Model) || ((Model) target).getOrder() == null
+				|| Beans.isEqual(((Model) object).getId(), ((Model) target).getId())) {
+			throw new IllegalArgumentException("Illegal target:" + target);
+		}
+		Model entity = (Model) object;
+		double order = ((Model) target).getOrder();
+		String parent = null;
+		if (object instanceof TreeModel) {
+			parent = Repositories.getParentKey(((TreeModel<?>) object).getKey());
+			if (!Beans.isEqual(parent, Repositories.getParentKey(((TreeModel<?>) target).getKey()))) {
+				throw new IllegalArgumentException("Illegal target:" + target);
+			}
+		}
+		List<Lock> locks = this.lockTree(parent == null ? "" : parent);
+		try {
+			Query<T> query = this.getSiblingQuery(parent).ne(this.getPrimary(), entity.getId()).paging(1, 1);
+			List<T> neighbours = before ? query.lt("order", order).desc("order").list() : query
+					.gt("order", order).asc("order").list();
+			double value;
+			boolean unbalanced = false;
+			if (neighbours.isEmpty()) {
+				value = before ? order - 1 : order + 1;
+			} else {
+				double bound = ((Model) neighbours.get(0)).getOrder();
+				value = (order + bound) / 2;
+				unbalanced = Math.abs(bound - order) / 2 < this.orderPrecision;
+			}
+			entity.setOrder(value);
+			this.update(object);
+			if (unbalanced) {
+				this.unbalance(parent);
+			}
+		} finally {
+			this.unlockTree(locks);
+		}
+	}
+
+	@Override
+	public void moveBefore(T object, T target) {
+		this.reorder(object, target, true);
+	}
+
+	@Override
+	public void moveAfter(T object, T target) {
+		this.reorder(object, target, false);
+	}
+
+	/**
+	 * 登记需要重新编排排序值的同级分组，由后台服务定时执行
+	 * 
+	 * @param parent
+	 *            父节点标识，根节点或非树模型为null
+	 */
+	protected void unbalance(String parent) {
+		synchronized (this.unbalances) {
+			this.unbalances.add(parent == null ? "" : parent);
+			if (this.rebalancer == null) {
+				this.rebalancer = new AbstractTimerServer() {
+
+					@Override
+					protected void execute() throws Exception {
+						rebalance();
+					}
+
+				};
+				this.rebalancer.setInterval(REBALANCE_INTERVAL);
+				this.rebalancer.start();
+			}
+		}
+	}
+
+	/**
+	 * 重新编排所有已登记同级分组的排序值，编排期间锁定同级分组
+	 */
+	public void rebalance() {
+		List<String> groups;
+		synchronized (this.unbalances) {
+			groups = new ArrayList<String>(this.unbalances);
+			this.unbalances.clear();
+		}
+		for (int i = 0; i < groups.size(); i++) {
+			String group = groups.get(i);
+			try {
+				List<Lock> locks = this.lockTree(group);
+				try {
+					this.rebalance(group.isEmpty() ? null : group);
+				} finally {
+					this.unlockTree(locks);
+				}
+			} catch (RuntimeException e) {
+				synchronized (this.unbalances) {
+					this.unbalances.addAll(groups.subList(i, groups.size()));
+				}
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * 销毁数据持久化对象，停止排序值重新编排服务
+	 */
+	public void destroy() {
+		synchronized (this.unbalances) {
+			if (this.rebalancer != null) {
+				this.rebalancer.stop();
+				this.rebalancer = null;
+			}
+		}
+	}
+
+	/**
+	 * 重新编排同级数据排序值（按原有顺序依次编排为1、2、3...）
+	 * 
+	 * @param parent
+	 *            父节点标识，根节点或非树模型为null
+	 */
+	protected void rebalance(String parent) {
+		List<T> siblings = this.getSiblingQuery(parent).asc("order", this.getPrimary()).list();
+		List<String> keys = new ArrayList<String>(siblings.size());
+		for (int i = 0; i < siblings.size(); i++) {
+			T sibling = siblings.get(i);
+			Model entity = (Model) sibling;
+			if (entity.getOrder() == null || entity.getOrder() != i + 1) {
+				entity.setOrder((double) (i + 1));
+				this.modify(sibling);
+				this.evictCache(sibling);
+				if (sibling instanceof TreeModel) {
+					keys.add(((TreeModel<?>) sibling).getKey());
+				}
+			}
+		}
+		this.evictQueryCache();
+		this.refreshSnapshot(null, null, keys.toArray(new String[keys.size()]));
+	}
+
+	/**
+	 * 预分配对象实体主键
+	 * 
+	 * @param object
+	 *            对象实体
+	 * @return 主键，如果不支持预分配则返回null
+	 */
+	protected Serializable allocate(T object) {
+		return null;
+	}
+
+	/**
+	 * 释放当前线程已预分配但尚未插入的主键，保存操作结束（包括失败）时调用
+	 */
+	protected void release() {
+	}
+
+	/**
+	 * 移动子孙节点，将标识以原标识开头的所有子孙节点标识前缀替换为新标识并调整层级
+	 * 
+	 * @param source
+	 *            原标识
+	 * @param target
+	 *            新标识
+	 * @param offset
+	 *            层级变化量
+	 */
+	@SuppressWarnings("unchecked")
+	protected void move(String source, String target, int offset) {
+		List<T> relates = this.query().ne("key", source).start("key", source).list();
+		for (int i = 0; i < relates.size(); i++) {
+			TreeModel<?> relate = (TreeModel<?>) relates.get(i);
+			relate.setKey(new StringBuilder(target).append(relate.getKey().substring(source.length())).toString());
+			relate.setLevel(relate.getLevel() + offset);
+			this.modify((T) relate);
+		}
+	}
+
+	/**
+	 * 判断是否维护树节点子节点数量，数据模型未映射子节点数量属性时按照子节点统计结果维护叶节点标识
+	 * 
+	 * @return true/false
+	 */
+	protected boolean isCounted() {
+		return false;
+	}
+
+	/**
+	 * 调整树节点子节点数量并同步叶节点标识（维护子节点数量时调用）
+	 * 
+	 * 子节点数量尚未统计时将统计数据库中的子节点数量，调用时当前操作的子节点尚未写入数据库
+	 * 
+	 * @param key
+	 *            树节点标识
+	 * @param delta
+	 *            子节点数量变化量
+	 */
+	@SuppressWarnings("unchecked")
+	protected void resize(String key, int delta) {
+		TreeModel<?> node = (TreeModel<?>) this.query().eq("key", key).single();
+		if (node != null) {
+			Integer count = (Integer) Beans.getValue(node, "childCount");
+			if (count == null) {
+				count = this.query().ne("key", key).eq("level", node.getLevel() + 1).start("key", key).count();
+			}
+			count = Math.max(count + delta, 0);
+			Beans.setValue(node, "childCount", count);
+			node.setLeaf(count == 0);
+			this.modify((T) node);
+			this.evictCache(node);
+		}
+	}
+
+	/**
+	 * 按照子节点统计结果更新树节点叶节点标识（未维护子节点数量时调用），调用时当前操作的子节点尚未写入数据库
+	 * 
+	 * @param key
+	 *            树节点标识
+	 * @param delta
+	 *            子节点数量变化量
+	 */
+	@SuppressWarnings("unchecked")
+	private void releaf(String key, int delta) {
+		TreeModel<?> node = (TreeModel<?>) this.query().eq("key", key).single();
+		if (node != null) {
+			Boolean leaf = this.query().ne("key", key).eq("level", node.getLevel() + 1).start("key", key).count()
+					+ delta <= 0;
+			if (node.getLeaf() != leaf) {
+				node.setLeaf(leaf);
+				this.modify((T) node);
+				this.evictCache(node);
+			}
+		}
+	}
+
+	/**
+	 * 调整父节点子节点数量，并同步内存中父节点对象状态
+	 * 
+	 * @param parent
+	 *            父节点
+	 * @param delta
+	 *            子节点数量变化量
+	 */
+	@SuppressWarnings("unchecked")
+	private void resizeParent(TreeModel<?> parent, int delta) {
+		if (!this.isCounted()) {
+			Boolean leaf = delta > 0 ? Boolean.FALSE : this.query().eq("parent", parent).count() + delta <= 0;
+			if (parent.getLeaf() != leaf) {
+				parent.setLeaf(leaf);
+				this.modify((T) parent);
+				this.evictCache(parent);
+			}
+			return;
+		}
+		this.resize(parent.getKey(), delta);
+		Integer count = (Integer) Beans.getValue(parent, "childCount");
+		if (count != null) {
+			count = Math.max(count + delta, 0);
+			Beans.setValue(parent, "childCount", count);
+			parent.setLeaf(count == 0);
+		} else if (delta > 0) {
+			parent.setLeaf(false);
+		}
+		this.evictCache(parent);
+	}
+
+	/**
+	 * 建立树节点与祖先节点的关系（树节点新增后调用）
+	 * 
+	 * @param tree
+	 *            树节点
+	 */
+	protected void link(T tree) {
+
+	}
+
+	/**
+	 * 批量建立树节点与祖先节点的关系（树节点新增后调用），父节点需排列在子节点之前
+	 * 
+	 * @param trees
+	 *            树节点列表
+	 */
+	protected void link(List<T> trees) {
+		for (T tree : trees) {
+			this.link(tree);
+		}
+	}
+
+	/**
+	 * 重建树节点及其子孙节点与祖先节点的关系（树节点移动后调用）
+	 * 
+	 * @param tree
+	 *            树节点
+	 */
+	protected void relink(T tree) {
+
+	}
+
+	/**
+	 * 解除树节点与其他节点的关系（树节点删除前调用）
+	 * 
+	 * @param tree
+	 *            树节点
+	 */
+	protected void unlink(T tree) {
+
+	}
+
+	/**
+	 * 获取树节点的所有祖先节点查询对象
+	 * 
+	 * @param tree
+	 *            树节点
+	 * @return 数据查询对象
+	 */
+	public Query<T> ancestors(T tree) {
+		if (tree == null) {
+			throw new IllegalArgumentException("Illegal tree:" + tree);
+		}
+		String[] keys = Repositories.getAncestorKeys(((TreeModel<?>) tree).getKey());
+		return keys.length == 0 ? Repositories.<T> emptyQuery() : this.query().in("key", keys);
+	}
+
+	/**
+	 * 获取树节点的子孙节点查询对象
+	 * 
+	 * @param tree
+	 *            树节点
+	 * @param depth
+	 *            相对深度（小于1时不限制深度）
+	 * @return 数据查询对象
+	 */
+	public Query<T> descendants(T tree, int depth) {
+		if (tree == null) {
+			throw new IllegalArgumentException("Illegal tree:" + tree);
+		}
+		TreeModel<?> node = (TreeModel<?>) tree;
+		Query<T> query = this.query().ne("key", node.getKey()).start("key", node.getKey());
+		return depth > 0 ? query.le("level", node.getLevel() + depth) : query;
+	}
+
+	/**
+	 * 批量设置树节点激活状态
+	 * 
+	 * @param trees
+	 *            树节点集合
+	 * @param active
+	 *            是否激活
+	 */
+	public void activate(Collection<T> trees, boolean active) {
+		this.activate(trees, active, null);
+	}
+
+	/**
+	 * 批量设置树节点激活状态，同时设置修改时间及修改人
+	 * 
+	 * @param trees
+	 *            树节点集合
+	 * @param active
+	 *            是否激活
+	 * @param updater
+	 *            修改人，为null时不修改
+	 */
+	public void activate(Collection<T> trees, boolean active, String updater) {
+		if (trees == null) {
+			throw new IllegalArgumentException("Illegal trees:" + trees);
+		}
+		for (T tree : trees) {
+			((TreeModel<?>) tree).setActive(active);
+			if (updater != null) {
+				((TreeModel<?>) tree).setUpdater(updater);
+			}
+		}
+		this.updateAll(trees);
+	}
+
+	/**
+	 * 将缓存的持久化操作提交到数据库，并释放本批次提交的对象实体（当前会话中的其他对象实体保持不变）
+	 * 
+	 * @param objects
+	 *            本批次对象实体
+	 */
+	protected void flush(List<T> objects) {
+
+	}
+
+	/**
+	 * 提交批次
+	 * 
+	 * @param operation
+	 *            操作名称
+	 * @param batch
+	 *            批次对象实体（提交后清空）
+	 * @param start
+	 *            批次开始时间（毫秒）
+	 * @return 下一批次开始时间（毫秒）
+	 */
+	private long commit(String operation, List<T> batch, long start) {
+		this.flush(batch);
+		long end = System.currentTimeMillis();
+		if (this.batchListener != null) {
+			this.batchListener.onBatch(this.model, operation, batch.size(), end - start);
+		}
+		batch.clear();
+		return end;
+	}
+
+	/**
+	 * 根据主键查找对象实体
+	 * 
+	 * @param id
+	 *            主键
+	 * @return 对象实体
+	 */
+	protected T lookup(Object id) {
+		return this.query().eq(this.getPrimary(), id).single();
 	}
 
 	/**
@@ -66,113 +1044,376 @@ public abstract class AbstractRepository<T> implements Repository<T> {
 		return Repositories.DEFAULT_PRIMARY_NAME;
 	}
 
+	@SuppressWarnings("unchecked")
 	@Override
 	public T get(Object id) {
-		return id == null ? null : this.query().eq(this.getPrimary(), id).single();
+		if (id == null) {
+			return null;
+		}
+		UnitOfWork unit = this.cacheable ? UnitOfWork.getCurrent() : null;
+		if (unit == null && (!this.cacheable || this.cacheCapacity < 1)) {
+			return this.lookup(id);
+		}
+		Integer key = (Integer) Beans.toObject(Integer.class, id);
+		T object = unit == null ? null : unit.get(this.model, key);
+		if (object != null) {
+			return object;
+		}
+		if (this.cacheCapacity > 0) {
+			Object[] entry;
+			synchronized (this.cache) {
+				entry = this.cache.get(key);
+			}
+			if (entry != null && System.currentTimeMillis() - (Long) entry[1] <= this.cacheTimeout) {
+				this.cacheHits.incrementAndGet();
+				return (T) ((Model) entry[0]).clone(); // 缓存副本可能已过期，不作为工作单元中的加载状态
+			} else {
+				this.cacheMisses.incrementAndGet();
+				object = this.lookup(key);
+				if (object != null && !this.isWriting()) {
+					entry = new Object[] { ((Model) object).clone(), System.currentTimeMillis() };
+					synchronized (this.cache) {
+						this.cache.put(key, entry);
+					}
+				}
+			}
+		} else {
+			object = this.lookup(key);
+		}
+		if (unit != null && object != null) {
+			unit.put(this.model, object);
+		}
+		return object;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public Serializable save(T object) {
-		if (object instanceof Model) {
-			Model entity = (Model) object;
-			entity.setDateJoined(new Date());
-			if (entity instanceof TreeModel) {
-				TreeModel<?> tree = (TreeModel<?>) object;
-				TreeModel<?> parent = tree.getParent();
-				if (parent != null) {
-					tree.setLevel(parent.getLevel() + 1);
-					if (parent.getLeaf() == Boolean.TRUE) {
-						parent.setLeaf(false);
-						this.modify((T) parent);
+		TreeModel<?> parent = object instanceof TreeModel ? ((TreeModel<?>) object).getParent() : null;
+		List<Lock> locks = parent == null ? null : this.lockTree(parent.getKey());
+		try {
+			Serializable id = object instanceof Model ? this.allocate(object) : null;
+			if (object instanceof Model) {
+				Model entity = (Model) object;
+				entity.setDateJoined(new Date());
+				if (id != null && entity.getOrder() == null) {
+					entity.setOrder(((Number) id).doubleValue());
+				}
+				if (entity instanceof TreeModel) {
+					TreeModel<?> tree = (TreeModel<?>) object;
+					if (parent != null) {
+						tree.setLevel(parent.getLevel() + 1);
+						this.resizeParent(parent, 1);
 					}
+					tree.setKey(id == null ? UUID.randomUUID().toString() : Repositories.buildTreeKey(tree,
+							((Number) id).intValue()));
 				}
-				tree.setKey(UUID.randomUUID().toString());
 			}
-		}
-		Serializable id = this.insert(object);
-		if (object instanceof Model) {
-			boolean changed = false;
-			Model entity = (Model) object;
-			if (entity.getOrder() == null) {
-				entity.setOrder(((Number) id).doubleValue());
-				changed = true;
+			if (id != null) { // 主键已预分配，排序及树标识无需插入后再修改
+				this.insert(object);
+			} else if ((id = this.insert(object)) != null && object instanceof Model) {
+				boolean changed = false;
+				Model entity = (Model) object;
+				if (entity.getOrder() == null) {
+					entity.setOrder(((Number) id).doubleValue());
+					changed = true;
+				}
+				if (entity instanceof TreeModel) {
+					TreeModel<?> tree = (TreeModel<?>) object;
+					tree.setKey(Repositories.buildTreeKey(tree, ((Number) id).intValue()));
+					changed = true;
+				}
+				if (changed) {
+					this.modify(object);
+				}
 			}
-			if (entity instanceof TreeModel) {
+			this.evictQueryCache();
+			if (object instanceof TreeModel) {
 				TreeModel<?> tree = (TreeModel<?>) object;
-				tree.setKey(Repositories.buildTreeKey(tree, ((Number) id).intValue()));
-				changed = true;
-			}
-			if (changed) {
-				this.modify(object);
+				this.link(object);
+				this.refreshSnapshot(null, null, tree.getKey(), Repositories.getParentKey(tree.getKey()));
 			}
+			return id;
+		} finally {
+			this.release();
+			this.unlockTree(locks);
 		}
-		return id;
 	}
 
 	@SuppressWarnings("unchecked")
 	@Override
 	public void update(T object) {
-		if (object instanceof Model) {
-			Model entity = (Model) object;
-			entity.setDateUpdate(new Date());
-			if (entity instanceof TreeModel) {
-				TreeModel<?> tree = (TreeModel<?>) object;
-				String key = tree.getKey();
-				int level = tree.getLevel();
-				TreeModel<?> parent = tree.getParent();
-				String pkey = Repositories.getParentKey(key);
-				if (!Beans.isEqual(pkey, parent == null ? null : parent.getKey())) {
-					if (parent == null) {
-						tree.setLevel(1);
-					} else {
-						tree.setLevel(parent.getLevel() + 1);
-						if (parent.getLeaf() == Boolean.TRUE) {
-							parent.setLeaf(false);
-							this.modify((T) parent);
+		List<Lock> locks = null;
+		if (object instanceof TreeModel) {
+			TreeModel<?> tree = (TreeModel<?>) object;
+			String pkey = Repositories.getParentKey(tree.getKey());
+			String target = tree.getParent() == null ? null : tree.getParent().getKey();
+			if (!Beans.isEqual(pkey, target)) {
+				locks = this.lockTree(tree.getKey(), pkey, target);
+			}
+		}
+		try {
+			String moved = null; // 移动前的树标识
+			if (object instanceof Model) {
+				Model entity = (Model) object;
+				entity.setDateUpdate(new Date());
+				if (entity instanceof TreeModel) {
+					TreeModel<?> tree = (TreeModel<?>) object;
+					String key = tree.getKey();
+					int level = tree.getLevel();
+					TreeModel<?> parent = tree.getParent();
+					String pkey = Repositories.getParentKey(key);
+					if (!Beans.isEqual(pkey, parent == null ? null : parent.getKey())) {
+						if (parent == null) {
+							tree.setLevel(1);
+						} else {
+							tree.setLevel(parent.getLevel() + 1);
+							this.resizeParent(parent, 1);
 						}
-					}
-					if (pkey != null) {
-						TreeModel<?> sparent = (TreeModel<?>) this.query().eq("key", pkey).single();
-						if (sparent != null) {
-							Boolean leaf = this.query().ne("key", pkey).eq("level", sparent.getLevel() + 1)
-									.start("key", pkey).count() == 1;
-							if (sparent.getLeaf() != leaf) {
-								sparent.setLeaf(leaf);
-								this.modify((T) sparent);
-							}
+						if (pkey != null && this.isCounted()) {
+							this.resize(pkey, -1);
+						} else if (pkey != null) {
+							this.releaf(pkey, -1);
 						}
-					}
-					Repositories.refreshTreeKey(tree);
-					List<T> relates = this.query().ne("key", key).start("key", key).list();
-					for (int i = 0; i < relates.size(); i++) {
-						TreeModel<?> relate = (TreeModel<?>) relates.get(i);
-						StringBuilder keyBuilder = new StringBuilder(tree.getKey())
-								.append(relate.getKey().substring(Repositories.getParentKey(relate.getKey()).length()));
-						relate.setKey(keyBuilder.toString());
-						relate.setLevel(relate.getLevel() - level + tree.getLevel());
-						this.modify((T) relate);
+						this.clearCache();
+						Repositories.refreshTreeKey(tree);
+						this.move(key, tree.getKey(), tree.getLevel() - level);
+						this.relink(object);
+						moved = key;
 					}
 				}
 			}
+			this.modify(object);
+			this.evictCache(object);
+			this.evictQueryCache();
+			if (object instanceof TreeModel) {
+				String key = ((TreeModel<?>) object).getKey();
+				if (moved == null) {
+					this.refreshSnapshot(null, null, key);
+				} else {
+					this.refreshSnapshot(moved, key, Repositories.getParentKey(moved),
+							Repositories.getParentKey(key));
+				}
+			}
+		} finally {
+			this.unlockTree(locks);
 		}
-		this.modify(object);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
 	public void delete(T object) {
+		List<Lock> locks = null;
 		if (object instanceof TreeModel) {
-			TreeModel<?> parent = ((TreeModel<?>) object).getParent();
-			if (parent != null) {
-				Boolean leaf = this.query().eq("parent", parent).count() == 1;
-				if (leaf != parent.getLeaf()) {
-					parent.setLeaf(leaf);
-					this.modify((T) parent);
+			String key = ((TreeModel<?>) object).getKey();
+			locks = this.lockTree(key, Repositories.getParentKey(key));
+		}
+		try {
+			if (object instanceof TreeModel) {
+				TreeModel<?> parent = ((TreeModel<?>) object).getParent();
+				if (parent != null) {
+					this.resizeParent(parent, -1);
+				}
+				this.unlink(object);
+			}
+			this.remove(object);
+			this.evictCache(object);
+			this.evictQueryCache();
+			if (object instanceof TreeModel) {
+				String key = ((TreeModel<?>) object).getKey();
+				this.refreshSnapshot(key, null, Repositories.getParentKey(key));
+			}
+		} finally {
+			this.unlockTree(locks);
+		}
+	}
+
+	@Override
+	public List<Serializable> saveAll(Collection<T> objects) {
+		if (objects == null) {
+			throw new IllegalArgumentException("Illegal objects:" + objects);
+		}
+		List<T> batch = new ArrayList<T>(this.batchSize);
+		long start = System.currentTimeMillis();
+		List<Serializable> ids = new ArrayList<Serializable>(objects.size());
+		for (T object : objects) {
+			ids.add(this.save(object));
+			batch.add(object);
+			if (batch.size() == this.batchSize) {
+				start = this.commit("save", batch, start);
+			}
+		}
+		if (!batch.isEmpty()) {
+			this.commit("save", batch, start);
+		}
+		return ids;
+	}
+
+	/**
+	 * 批量保存树（森林），各节点的主键、树标识、层级、子节点数量及叶节点标记在内存中预先计算后分批插入
+	 * 
+	 * 节点按先序依次保存，保存期间临时移除各节点的子节点，保存完成后恢复，传入的树结构保持不变；如果不支持主键预分配则逐个节点保存
+	 * 
+	 * @param roots
+	 *            根节点集合（根节点可以关联已存在的父节点）
+	 * @return 各节点主键列表（先序）
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public List<Serializable> saveTrees(Collection<T> roots) {
+		if (roots == null) {
+			throw new IllegalArgumentException("Illegal roots:" + roots);
+		}
+		List<T> nodes = new ArrayList<T>();
+		List<Integer> sizes = new ArrayList<Integer>();
+		List<List<T>> childrens = new ArrayList<List<T>>(); // 子节点列表副本，持久化完成后恢复
+		LinkedList<T> stack = new LinkedList<T>(roots);
+		while (!stack.isEmpty()) {
+			TreeModel node = (TreeModel) stack.removeFirst();
+			List<T> children = new ArrayList<T>(node.getChildren());
+			for (int i = children.size() - 1; i > -1; i--) {
+				((TreeModel) children.get(i)).setParent(node);
+				stack.addFirst(children.get(i));
+			}
+			nodes.add((T) node);
+			sizes.add(children.size());
+			childrens.add(children);
+		}
+		List<Serializable> ids = new ArrayList<Serializable>(nodes.size());
+		if (nodes.isEmpty()) {
+			return ids;
+		}
+
+		// 持久化期间移除子节点，避免级联保存尚未生成标识的子节点
+		for (T node : nodes) {
+			((TreeModel) node).getChildren().clear();
+		}
+		try {
+			this.saveNodes(roots, nodes, sizes, ids);
+		} finally {
+			this.release();
+			for (int i = 0; i < nodes.size(); i++) {
+				List<T> children = ((TreeModel) nodes.get(i)).getChildren();
+				if (children.isEmpty()) {
+					children.addAll(childrens.get(i));
+				}
+			}
+		}
+		return ids;
+	}
+
+	/**
+	 * 按照先序顺序持久化树节点
+	 * 
+	 * @param roots
+	 *            根节点集合
+	 * @param nodes
+	 *            树节点列表（父节点排列在子节点之前，子节点已移除）
+	 * @param sizes
+	 *            树节点子节点数量列表
+	 * @param ids
+	 *            主键列表
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private void saveNodes(Collection<T> roots, List<T> nodes, List<Integer> sizes, List<Serializable> ids) {
+		List<T> batch = new ArrayList<T>(this.batchSize);
+		long start = System.currentTimeMillis();
+		if (this.allocate(nodes.get(0)) == null) { // 不支持主键预分配
+			for (T node : nodes) {
+				ids.add(this.save(node));
+				batch.add(node);
+				if (batch.size() == this.batchSize) {
+					start = this.commit("save", batch, start);
+				}
+			}
+		} else {
+			List<String> parents = new ArrayList<String>(roots.size());
+			for (T root : roots) {
+				TreeModel<?> parent = ((TreeModel<?>) root).getParent();
+				if (parent != null) {
+					parents.add(parent.getKey());
+				}
+			}
+			List<Lock> locks = this.lockTree(parents.toArray(new String[parents.size()]));
+			try {
+				for (T root : roots) {
+					TreeModel<?> parent = ((TreeModel<?>) root).getParent();
+					if (parent != null) {
+						this.resizeParent(parent, 1);
+					}
 				}
+			} finally {
+				this.unlockTree(locks);
+			}
+			Date date = new Date();
+			for (int i = 0; i < nodes.size(); i++) {
+				T node = nodes.get(i);
+				TreeModel<?> tree = (TreeModel<?>) node;
+				TreeModel<?> parent = tree.getParent();
+				Serializable id = this.allocate(node);
+				tree.setDateJoined(date);
+				if (tree.getOrder() == null) {
+					tree.setOrder(((Number) id).doubleValue());
+				}
+				tree.setLevel(parent == null ? 1 : parent.getLevel() + 1);
+				tree.setKey(Repositories.buildTreeKey(tree, ((Number) id).intValue()));
+				if (this.isCounted()) {
+					Beans.setValue(tree, "childCount", sizes.get(i));
+				}
+				tree.setLeaf(sizes.get(i) == 0);
+				this.insert(node);
+				ids.add(id);
+				batch.add(node);
+				if (batch.size() == this.batchSize) {
+					start = this.commit("save", batch, start);
+				}
+			}
+			this.link(nodes);
+			this.evictQueryCache();
+			for (T root : roots) {
+				String key = ((TreeModel<?>) root).getKey();
+				this.refreshSnapshot(null, key, Repositories.getParentKey(key));
 			}
 		}
-		this.remove(object);
+		if (!batch.isEmpty()) {
+			this.commit("save", batch, start);
+		}
+	}
+
+	@Override
+	public void updateAll(Collection<T> objects) {
+		if (objects == null) {
+			throw new IllegalArgumentException("Illegal objects:" + objects);
+		}
+		List<T> batch = new ArrayList<T>(this.batchSize);
+		long start = System.currentTimeMillis();
+		for (T object : objects) {
+			this.update(object);
+			batch.add(object);
+			if (batch.size() == this.batchSize) {
+				start = this.commit("update", batch, start);
+			}
+		}
+		if (!batch.isEmpty()) {
+			this.commit("update", batch, start);
+		}
+	}
+
+	@Override
+	public void deleteAll(Collection<T> objects) {
+		if (objects == null) {
+			throw new IllegalArgumentException("Illegal objects:" + objects);
+		}
+		List<T> batch = new ArrayList<T>(this.batchSize);
+		long start = System.currentTimeMillis();
+		for (T object : objects) {
+			this.delete(object);
+			batch.add(object);
+			if (batch.size() == this.batchSize) {
+				start = this.commit("delete", batch, start);
+			}
+		}
+		if (!batch.isEmpty()) {
+			this.commit("delete", batch, start);
+		}
 	}
 
 }
@@ -0,0 +1,24 @@
+package ars.database.repository;
+
+/**
+ * 批量持久化操作监听接口
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public interface BatchListener {
+	/**
+	 * 批次提交完成
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param operation
+	 *            操作名称（save、update、delete）
+	 * @param count
+	 *            批次数据量
+	 * @param time
+	 *            批次耗时（毫秒）
+	 */
+	public void onBatch(Class<?> model, String operation, int count, long time);
+
+}
@@ -0,0 +1,21 @@
+package ars.database.repository;
+
+import java.io.Closeable;
+import java.util.Iterator;
+
+/**
+ * 数据游标（流式遍历数据集合，使用完毕后必须关闭）
+ * 
+ * @author yongqiangwu
+ * 
+ * @param <T>
+ *            数据模型
+ */
+public interface Cursor<T> extends Iterator<T>, Closeable {
+	/**
+	 * 关闭游标并释放相关资源
+	 */
+	@Override
+	public void close();
+
+}
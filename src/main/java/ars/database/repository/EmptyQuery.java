@@ -4,9 +4,12 @@ import java.util.Map;
 import java.util.List;
 import java.util.Iterator;
 import java.util.Collections;
+import java.util.NoSuchElementException;
 
 import ars.util.Conditions.Condition;
 import ars.database.repository.Query;
+import ars.database.repository.Page;
+import ars.database.repository.Cursor;
 
 /**
  * 数据查询集合空实现
@@ -212,6 +215,11 @@ public final class EmptyQuery<T> implements Query<T> {
 		return this;
 	}
 
+	@Override
+	public Query<T> after(Object... values) {
+		return this;
+	}
+
 	@Override
 	public Query<T> min(String... properties) {
 		return this;
@@ -262,9 +270,46 @@ public final class EmptyQuery<T> implements Query<T> {
 		return Collections.emptyList();
 	}
 
+	@Override
+	public Page<T> page() {
+		return new Page<T>(this.list(), 0);
+	}
+
 	@Override
 	public List<?> stats() {
 		return Collections.emptyList();
 	}
 
+	@Override
+	public Cursor<T> cursor() {
+		return this.cursor(0);
+	}
+
+	@Override
+	public Cursor<T> cursor(int fetchSize) {
+		return new Cursor<T>() {
+
+			@Override
+			public boolean hasNext() {
+				return false;
+			}
+
+			@Override
+			public T next() {
+				throw new NoSuchElementException();
+			}
+
+			@Override
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+
+			@Override
+			public void close() {
+
+			}
+
+		};
+	}
+
 }
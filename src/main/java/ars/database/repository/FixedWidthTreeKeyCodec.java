@@ -0,0 +1,133 @@
+package ars.database.repository;
+
+import ars.util.Strings;
+import ars.database.repository.TreeKeyCodec;
+
+/**
+ * 定长树标识编码
+ * 
+ * 每级节点序号按指定进制编码为固定长度字符串（不足左补0），无需分隔符；编码字符按ASCII顺序排列，标识的字典顺序与序号大小一致。
+ * 进制最大为36，编码字符只包含数字和大写字母，标识范围查询在不区分大小写的排序规则下同样有效
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class FixedWidthTreeKeyCodec implements TreeKeyCodec {
+	/**
+	 * 编码字符（按ASCII顺序，不包含小写字母）
+	 */
+	private static final String DIGITS = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ";
+
+	/**
+	 * 默认进制
+	 */
+	public static final int DEFAULT_RADIX = 36;
+
+	/**
+	 * 默认单级编码长度
+	 */
+	public static final int DEFAULT_WIDTH = 6;
+
+	private final int radix; // 进制
+	private final int width; // 单级编码长度
+	private final long capacity; // 单级序号上限
+	private final String alphabet; // 编码字符（按字符顺序）
+
+	public FixedWidthTreeKeyCodec() {
+		this(DEFAULT_RADIX, DEFAULT_WIDTH);
+	}
+
+	public FixedWidthTreeKeyCodec(int radix, int width) {
+		if (radix < 2 || radix > DIGITS.length()) {
+			throw new IllegalArgumentException("Illegal radix:" + radix);
+		}
+		if (width < 1) {
+			throw new IllegalArgumentException("Illegal width:" + width);
+		}
+		long capacity = 1;
+		for (int i = 0; i < width && capacity <= Integer.MAX_VALUE; i++) {
+			capacity *= radix;
+		}
+		this.radix = radix;
+		this.width = width;
+		this.capacity = capacity;
+		this.alphabet = DIGITS.substring(0, radix);
+	}
+
+	public int getRadix() {
+		return radix;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	@Override
+	public String getRoot() {
+		return "";
+	}
+
+	@Override
+	public String encode(String parent, int sequence) {
+		if (sequence < 0 || sequence >= this.capacity) {
+			throw new IllegalArgumentException("Illegal sequence:" + sequence);
+		}
+		char[] chars = new char[this.width];
+		for (int i = this.width - 1; i > -1; i--) {
+			chars[i] = DIGITS.charAt(sequence % this.radix);
+			sequence /= this.radix;
+		}
+		return parent == null ? new String(chars) : new StringBuilder(parent.length() + this.width).append(parent)
+				.append(chars).toString();
+	}
+
+	@Override
+	public String getParentKey(String key) {
+		if (key.length() % this.width != 0) {
+			throw new IllegalArgumentException("Illegal key:" + key);
+		}
+		return key.length() > this.width ? key.substring(0, key.length() - this.width) : null;
+	}
+
+	@Override
+	public boolean isParentKey(String parent, String key) {
+		return parent != null && key != null && parent.length() > 0 && key.length() == parent.length() + this.width
+				&& key.startsWith(parent);
+	}
+
+	@Override
+	public String[] getAncestorKeys(String key) {
+		if (key == null || key.isEmpty()) {
+			return Strings.EMPTY_ARRAY;
+		}
+		if (key.length() % this.width != 0) {
+			throw new IllegalArgumentException("Illegal key:" + key);
+		}
+		String[] keys = new String[key.length() / this.width - 1];
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = key.substring(0, (i + 1) * this.width);
+		}
+		return keys;
+	}
+
+	@Override
+	public String getSuccessorKey(String prefix) {
+		if (prefix == null) {
+			return null;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (this.alphabet.indexOf(prefix.charAt(i)) < 0) {
+				return null;
+			}
+		}
+		for (int i = prefix.length() - 1; i > -1; i--) {
+			int index = this.alphabet.indexOf(prefix.charAt(i));
+			if (index < this.alphabet.length() - 1) {
+				return new StringBuilder(i + 1).append(prefix, 0, i).append(this.alphabet.charAt(index + 1))
+						.toString();
+			}
+		}
+		return null;
+	}
+
+}
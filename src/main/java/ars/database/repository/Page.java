@@ -0,0 +1,39 @@
+package ars.database.repository;
+
+import java.util.List;
+import java.io.Serializable;
+
+/**
+ * 分页数据（当前页数据及数据总量）
+ * 
+ * @author yongqiangwu
+ * 
+ * @param <T>
+ *            数据模型
+ */
+public class Page<T> implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	private final int total; // 数据总量
+	private final List<T> rows; // 当前页数据
+
+	public Page(List<T> rows, int total) {
+		if (rows == null) {
+			throw new IllegalArgumentException("Illegal rows:" + rows);
+		}
+		if (total < rows.size()) {
+			throw new IllegalArgumentException("Illegal total:" + total);
+		}
+		this.rows = rows;
+		this.total = total;
+	}
+
+	public int getTotal() {
+		return total;
+	}
+
+	public List<T> getRows() {
+		return rows;
+	}
+
+}
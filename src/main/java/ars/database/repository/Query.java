@@ -4,6 +4,7 @@ import java.util.Map;
 import java.util.List;
 
 import ars.util.Conditions.Condition;
+import ars.database.repository.Cursor;
 
 /**
  * 数据查询集合
@@ -184,6 +185,11 @@ public interface Query<T> extends Iterable<T> {
 	 */
 	public static final String ORDER = "__order";
 
+	/**
+	 * 键集分页起始值
+	 */
+	public static final String AFTER = "__after";
+
 	/**
 	 * 条件
 	 */
@@ -536,6 +542,18 @@ public interface Query<T> extends Iterable<T> {
 	 */
 	public Query<T> paging(int page, int size);
 
+	/**
+	 * 键集分页（从指定排序值之后开始获取数据，不受页码深度影响）
+	 * 
+	 * 排序值与当前排序属性一一对应，并以主键作为最后一个排序值；如果只传入一个数据模型实例，则从该实例中获取排序值；
+	 * 排序时空值被视为最小值，数据数量及分页数据总量统计的是起始值之后的数据量
+	 * 
+	 * @param values
+	 *            上一页最后一条数据的排序值数组或数据对象
+	 * @return 数据集合
+	 */
+	public Query<T> after(Object... values);
+
 	/**
 	 * 最小值统计
 	 * 
@@ -600,7 +618,7 @@ public interface Query<T> extends Iterable<T> {
 	public Query<T> property(String... properties);
 
 	/**
-	 * 获取数量
+	 * 获取数量（设置键集分页起始值时为起始值之后的数量）
 	 * 
 	 * @return 数量
 	 */
@@ -622,6 +640,15 @@ public interface Query<T> extends Iterable<T> {
 	 */
 	public List<T> list();
 
+	/**
+	 * 获取分页数据
+	 * 
+	 * 当前页数据不足一页时直接推算数据总量，否则使用相同查询条件的数据总量缓存，缓存失效后才执行数量统计
+	 * 
+	 * @return 分页数据
+	 */
+	public Page<T> page();
+
 	/**
 	 * 统计数据
 	 * 
@@ -629,4 +656,22 @@ public interface Query<T> extends Iterable<T> {
 	 */
 	public List<?> stats();
 
+	/**
+	 * 获取数据游标（使用默认抓取数量）
+	 * 
+	 * @return 数据游标
+	 */
+	public Cursor<T> cursor();
+
+	/**
+	 * 获取数据游标
+	 * 
+	 * 数据逐条从数据库中读取，已遍历的数据对象不会保留在内存中，游标使用完毕后必须关闭
+	 * 
+	 * @param fetchSize
+	 *            每次从数据库抓取的数据量
+	 * @return 数据游标
+	 */
+	public Cursor<T> cursor(int fetchSize);
+
 }
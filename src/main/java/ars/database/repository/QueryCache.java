@@ -0,0 +1,68 @@
+package ars.database.repository;
+
+import java.util.Collection;
+
+/**
+ * 数据查询结果缓存接口
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public interface QueryCache {
+	/**
+	 * 判断数据模型查询结果是否可缓存
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @return true/false
+	 */
+	public boolean isCacheable(Class<?> model);
+
+	/**
+	 * 获取查询结果
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param key
+	 *            查询指纹
+	 * @return 查询结果，如果缓存不存在或已失效则返回null
+	 */
+	public Object get(Class<?> model, String key);
+
+	/**
+	 * 获取缓存版本（每次清除查询结果时递增），应在执行查询前获取，并在缓存查询结果时传入
+	 * 
+	 * @return 缓存版本
+	 */
+	public long getVersion();
+
+	/**
+	 * 缓存查询结果，查询开始后数据模型或关联模型的查询结果已被清除时不缓存
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param key
+	 *            查询指纹
+	 * @param value
+	 *            查询结果
+	 * @param relations
+	 *            查询关联的数据模型集合，关联模型数据变更时查询结果同样失效
+	 * @param version
+	 *            执行查询前获取的缓存版本
+	 */
+	public void put(Class<?> model, String key, Object value, Collection<Class<?>> relations, long version);
+
+	/**
+	 * 清除数据模型及关联该模型的查询结果
+	 * 
+	 * @param model
+	 *            数据模型
+	 */
+	public void evict(Class<?> model);
+
+	/**
+	 * 清除所有查询结果
+	 */
+	public void clear();
+
+}
@@ -4,14 +4,11 @@ import java.util.Map;
 import java.util.Set;
 import java.util.List;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map.Entry;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Comparator;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.io.Serializable;
@@ -24,8 +21,12 @@ import ars.util.SimpleTree;
 import ars.database.model.TreeModel;
 import ars.database.repository.Query;
 import ars.database.repository.EmptyQuery;
+import ars.database.repository.QueryCache;
+import ars.database.repository.TreeKeyCodec;
 import ars.database.repository.Repository;
+import ars.database.repository.AbstractRepository;
 import ars.database.repository.RepositoryFactory;
+import ars.database.repository.SeparatorTreeKeyCodec;
 
 /**
  * 数据持久化操作工具类
@@ -37,7 +38,7 @@ public final class Repositories {
 	/**
 	 * 树对象唯一标识字符串分隔符
 	 */
-	public static final char TREE_KEY_SEPARATOR = 'x';
+	public static final char TREE_KEY_SEPARATOR = SeparatorTreeKeyCodec.DEFAULT_SEPARATOR;
 
 	/**
 	 * 默认数据模型主键名称
@@ -49,6 +50,16 @@ public final class Repositories {
 	 */
 	private static RepositoryFactory repositoryFactory;
 
+	/**
+	 * 数据查询结果缓存
+	 */
+	private static QueryCache queryCache;
+
+	/**
+	 * 树标识编码
+	 */
+	private static TreeKeyCodec treeKeyCodec = new SeparatorTreeKeyCodec(TREE_KEY_SEPARATOR);
+
 	private Repositories() {
 
 	}
@@ -85,6 +96,71 @@ public final class Repositories {
 		}
 	}
 
+	/**
+	 * 获取数据查询结果缓存
+	 * 
+	 * @return 数据查询结果缓存，如果未配置则返回null
+	 */
+	public static QueryCache getQueryCache() {
+		return queryCache;
+	}
+
+	/**
+	 * 设置数据查询结果缓存
+	 * 
+	 * @param queryCache
+	 *            数据查询结果缓存
+	 */
+	public static void setQueryCache(QueryCache queryCache) {
+		if (queryCache == null) {
+			throw new IllegalArgumentException("Illegal queryCache:" + queryCache);
+		}
+		if (Repositories.queryCache != null) {
+			throw new RuntimeException("Query cache has been initialize");
+		}
+		synchronized (Repositories.class) {
+			if (Repositories.queryCache == null) {
+				Repositories.queryCache = queryCache;
+			}
+		}
+	}
+
+	/**
+	 * 清除数据模型相关的查询结果缓存
+	 * 
+	 * @param model
+	 *            数据模型
+	 */
+	public static void evictQueryCache(Class<?> model) {
+		if (queryCache != null) {
+			queryCache.evict(model);
+		}
+	}
+
+	/**
+	 * 获取树标识编码
+	 * 
+	 * @return 树标识编码
+	 */
+	public static TreeKeyCodec getTreeKeyCodec() {
+		return treeKeyCodec;
+	}
+
+	/**
+	 * 设置树标识编码（需在树数据持久化前设置，且与已有数据的标识格式一致）
+	 * 
+	 * @param treeKeyCodec
+	 *            树标识编码
+	 */
+	public static void setTreeKeyCodec(TreeKeyCodec treeKeyCodec) {
+		if (treeKeyCodec == null) {
+			throw new IllegalArgumentException("Illegal treeKeyCodec:" + treeKeyCodec);
+		}
+		synchronized (Repositories.class) {
+			Repositories.treeKeyCodec = treeKeyCodec;
+		}
+	}
+
 	/**
 	 * 获取系统数据模型列表
 	 * 
@@ -124,17 +200,7 @@ public final class Repositories {
 	 * @return 树标识
 	 */
 	public static String getParentKey(String key) {
-		int count = 0, index1 = -1, index2 = -1;
-		for (int i = key.length() - 1; i > -1; i--) {
-			if (key.charAt(i) == TREE_KEY_SEPARATOR) {
-				index1 = index2;
-				index2 = i;
-				if (++count > 2) {
-					break;
-				}
-			}
-		}
-		return count < 3 ? null : key.substring(0, index1 + 1);
+		return treeKeyCodec.getParentKey(key);
 	}
 
 	/**
@@ -160,6 +226,17 @@ public final class Repositories {
 		return keys.subList(0, keys.size() - 1).toArray(Strings.EMPTY_ARRAY);
 	}
 
+	/**
+	 * 获取所有祖先节点标识
+	 * 
+	 * @param key
+	 *            树标识
+	 * @return 祖先节点完整标识数组（从根节点开始）
+	 */
+	public static String[] getAncestorKeys(String key) {
+		return treeKeyCodec.getAncestorKeys(key);
+	}
+
 	/**
 	 * 构建树对象实体标识
 	 * 
@@ -197,8 +274,7 @@ public final class Repositories {
 			throw new IllegalArgumentException("Illegal sequence:" + sequence);
 		}
 		M parent = (M) tree.getParent();
-		return new StringBuilder().append(parent == null ? TREE_KEY_SEPARATOR : parent.getKey()).append(sequence)
-				.append(TREE_KEY_SEPARATOR).toString();
+		return treeKeyCodec.encode(parent == null ? null : parent.getKey(), sequence);
 	}
 
 	/**
@@ -220,12 +296,10 @@ public final class Repositories {
 		} else {
 			M parent = (M) tree.getParent();
 			String pkey = getParentKey(key);
-			if (parent == null && pkey != null) {
-				tree.setKey(key.substring(pkey.length() - 1));
-			} else if (pkey == null && parent != null) {
-				tree.setKey(new StringBuilder(parent.getKey()).append(key.substring(1)).toString());
-			} else if (parent != null && pkey != null && !Beans.isEqual(parent.getKey(), pkey)) {
-				tree.setKey(new StringBuilder(parent.getKey()).append(key.substring(pkey.length())).toString());
+			String source = pkey == null ? treeKeyCodec.getRoot() : pkey;
+			String target = parent == null ? treeKeyCodec.getRoot() : parent.getKey();
+			if (!source.equals(target)) {
+				tree.setKey(new StringBuilder(target).append(key.substring(source.length())).toString());
 			}
 		}
 	}
@@ -250,6 +324,8 @@ public final class Repositories {
 	/**
 	 * 合并树对象并返回根节点副本（根据key值组装树结构）
 	 * 
+	 * 按树标识排序后父节点必然位于子节点之前，借助栈一次线性遍历即可确定父子关系；子节点及根节点保持原有顺序，树标识重复的节点以首个为准
+	 * 
 	 * @param <M>
 	 *            数据类型
 	 * @param trees
@@ -264,39 +340,101 @@ public final class Repositories {
 		if (trees.isEmpty()) {
 			return new ArrayList<M>(0);
 		}
-		Map<String, M> temp = new LinkedHashMap<String, M>(trees.size());
-		Map<String, List<M>> groups = new HashMap<String, List<M>>();
-		for (M tree : trees) {
-			String key = tree.getKey();
-			if (temp.containsKey(key)) {
+		int size = trees.size();
+		TreeModel[] nodes = trees.toArray(new TreeModel[size]);
+		String[] keys = new String[size];
+		int[] indexes = new int[size];
+		for (int i = 0; i < size; i++) {
+			keys[i] = nodes[i].getKey();
+			indexes[i] = i;
+		}
+		sortTreeIndexes(indexes, keys);
+
+		int top = -1;
+		int[] stack = new int[size];
+		int[] parents = new int[size];
+		int[] counts = new int[size];
+		boolean[] duplicates = new boolean[size];
+		for (int i = 0; i < size; i++) {
+			int index = indexes[i];
+			String key = keys[index];
+			parents[index] = -1;
+			if (i > 0 && key != null && key.equals(keys[indexes[i - 1]])) {
+				duplicates[index] = true;
 				continue;
 			}
-			temp.put(key, tree);
-			if (!groups.containsKey(key)) {
-				groups.put(key, new LinkedList<M>());
+			if (key == null) {
+				continue;
 			}
-			String parentKey = getParentKey(key);
-			if (parentKey != null) {
-				List<M> group = groups.get(parentKey);
-				if (group == null) {
-					group = new LinkedList<M>();
-					groups.put(parentKey, group);
-				}
-				group.add(tree);
+			while (top > -1 && !(key.length() > keys[stack[top]].length() && key.startsWith(keys[stack[top]]))) {
+				top--;
+			}
+			if (top > -1 && treeKeyCodec.isParentKey(keys[stack[top]], key)) {
+				parents[index] = stack[top];
+				counts[stack[top]]++;
+			}
+			stack[++top] = index;
+		}
+
+		List[] children = new List[size];
+		for (int i = 0; i < size; i++) {
+			if (!duplicates[i]) {
+				children[i] = new ArrayList<M>(counts[i]);
+				nodes[i].setChildren(children[i]);
 			}
 		}
-		LinkedList<M> roots = new LinkedList<M>();
-		for (Entry<String, M> entry : temp.entrySet()) {
-			M tree = entry.getValue();
-			tree.setChildren(groups.get(entry.getKey()));
-			String parentKey = getParentKey(tree.getKey());
-			if (parentKey == null || !temp.containsKey(parentKey)) {
-				roots.add(tree);
+		List<M> roots = new ArrayList<M>();
+		for (int i = 0; i < size; i++) {
+			if (!duplicates[i]) {
+				if (parents[i] < 0) {
+					roots.add((M) nodes[i]);
+				} else {
+					children[parents[i]].add(nodes[i]);
+				}
 			}
 		}
 		return roots;
 	}
 
+	/**
+	 * 按树标识对节点下标进行稳定排序（归并排序，树标识为null的节点排在最前）
+	 * 
+	 * @param indexes
+	 *            节点下标数组
+	 * @param keys
+	 *            树标识数组
+	 */
+	private static void sortTreeIndexes(int[] indexes, String[] keys) {
+		int[] source = indexes, target = new int[indexes.length];
+		for (int width = 1; width < indexes.length; width <<= 1) {
+			for (int low = 0; low < indexes.length; low += width << 1) {
+				int middle = Math.min(low + width, indexes.length);
+				int high = Math.min(low + (width << 1), indexes.length);
+				int i = low, j = middle, k = low;
+				while (i < middle && j < high) {
+					String left = keys[source[i]], right = keys[source[j]];
+					if (left == null || (right != null && left.compareTo(right) <= 0)) {
+						target[k++] = source[i++];
+					} else {
+						target[k++] = source[j++];
+					}
+				}
+				while (i < middle) {
+					target[k++] = source[i++];
+				}
+				while (j < high) {
+					target[k++] = source[j++];
+				}
+			}
+			int[] temp = source;
+			source = target;
+			target = temp;
+		}
+		if (source != indexes) {
+			System.arraycopy(source, 0, indexes, 0, indexes.length);
+		}
+	}
+
 	/**
 	 * 获取主键名称
 	 * 
@@ -444,6 +582,10 @@ public final class Repositories {
 		if (object == null) {
 			throw new IllegalArgumentException("Illegal object:" + object);
 		}
+		if (repository instanceof AbstractRepository) {
+			((AbstractRepository<M>) repository).saveTrees(Arrays.asList(object));
+			return;
+		}
 		List<M> children = new ArrayList<M>(object.getChildren());
 		object.getChildren().clear();
 		repository.save((M) object);
@@ -539,6 +681,68 @@ public final class Repositories {
 		return getRepository(model).query();
 	}
 
+	/**
+	 * 获取树节点的所有祖先节点查询集合
+	 * 
+	 * @param <M>
+	 *            数据类型
+	 * @param tree
+	 *            树节点
+	 * @return 数据查询集合
+	 */
+	public static <M extends TreeModel<?>> Query<M> getAncestors(M tree) {
+		return getTreeRepository(tree).ancestors(tree);
+	}
+
+	/**
+	 * 获取树节点的所有子孙节点查询集合
+	 * 
+	 * @param <M>
+	 *            数据类型
+	 * @param tree
+	 *            树节点
+	 * @return 数据查询集合
+	 */
+	public static <M extends TreeModel<?>> Query<M> getDescendants(M tree) {
+		return getTreeRepository(tree).descendants(tree, 0);
+	}
+
+	/**
+	 * 获取树节点指定深度内的子孙节点查询集合
+	 * 
+	 * @param <M>
+	 *            数据类型
+	 * @param tree
+	 *            树节点
+	 * @param depth
+	 *            相对深度（小于1时不限制深度）
+	 * @return 数据查询集合
+	 */
+	public static <M extends TreeModel<?>> Query<M> getDescendants(M tree, int depth) {
+		return getTreeRepository(tree).descendants(tree, depth);
+	}
+
+	/**
+	 * 获取树节点持久化对象
+	 * 
+	 * @param <M>
+	 *            数据类型
+	 * @param tree
+	 *            树节点
+	 * @return 数据持久化对象
+	 */
+	@SuppressWarnings("unchecked")
+	private static <M extends TreeModel<?>> AbstractRepository<M> getTreeRepository(M tree) {
+		if (tree == null) {
+			throw new IllegalArgumentException("Illegal tree:" + tree);
+		}
+		Repository<M> repository = getRepository((Class<M>) tree.getClass());
+		if (!(repository instanceof AbstractRepository)) {
+			throw new RuntimeException("Tree query not supported:" + tree.getClass());
+		}
+		return (AbstractRepository<M>) repository;
+	}
+
 	/**
 	 * 获取数据空查询集合
 	 * 
@@ -571,7 +775,8 @@ public final class Repositories {
 				return Modifier.isAbstract(type.getModifiers()) || (field != null && models.contains(type)
 						&& (field.getName().equals(getPrimary(type)) || (TreeModel.class.isAssignableFrom(type)
 								&& (field.getName().equals("key") || field.getName().equals("level")
-										|| field.getName().equals("leaf") || field.getName().equals("parent")))));
+										|| field.getName().equals("leaf") || field.getName().equals("childCount")
+										|| field.getName().equals("parent")))));
 			}
 
 		}).register(new Randoms.RandomGeneratorFactory() {
@@ -1,5 +1,7 @@
 package ars.database.repository;
 
+import java.util.List;
+import java.util.Collection;
 import java.io.Serializable;
 
 import ars.database.repository.Query;
@@ -68,4 +70,49 @@ public interface Repository<T> {
 	 */
 	public void delete(T object);
 
+	/**
+	 * 批量持久化对象
+	 * 
+	 * @param objects
+	 *            数据对象集合
+	 * @return 主键标识列表
+	 */
+	public List<Serializable> saveAll(Collection<T> objects);
+
+	/**
+	 * 批量修改对象
+	 * 
+	 * @param objects
+	 *            数据对象集合
+	 */
+	public void updateAll(Collection<T> objects);
+
+	/**
+	 * 批量删除数据
+	 * 
+	 * @param objects
+	 *            数据对象集合
+	 */
+	public void deleteAll(Collection<T> objects);
+
+	/**
+	 * 将对象移动到目标对象之前（树节点只能在同级节点之间移动）
+	 * 
+	 * @param object
+	 *            数据对象
+	 * @param target
+	 *            目标对象
+	 */
+	public void moveBefore(T object, T target);
+
+	/**
+	 * 将对象移动到目标对象之后（树节点只能在同级节点之间移动）
+	 * 
+	 * @param object
+	 *            数据对象
+	 * @param target
+	 *            目标对象
+	 */
+	public void moveAfter(T object, T target);
+
 }
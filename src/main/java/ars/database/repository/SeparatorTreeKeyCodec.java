@@ -0,0 +1,118 @@
+package ars.database.repository;
+
+import ars.util.Strings;
+import ars.database.repository.TreeKeyCodec;
+
+/**
+ * 分隔符树标识编码（十进制序号，以分隔符前后包围，如：x1x12x）
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class SeparatorTreeKeyCodec implements TreeKeyCodec {
+	/**
+	 * 默认分隔符
+	 */
+	public static final char DEFAULT_SEPARATOR = 'x';
+
+	private final char separator; // 分隔符
+	private final String root; // 根节点标识前缀
+	private final String alphabet; // 编码字符（按字符顺序）
+
+	public SeparatorTreeKeyCodec() {
+		this(DEFAULT_SEPARATOR);
+	}
+
+	public SeparatorTreeKeyCodec(char separator) {
+		if (Character.isDigit(separator)) {
+			throw new IllegalArgumentException("Illegal separator:" + separator);
+		}
+		this.separator = separator;
+		this.root = String.valueOf(separator);
+		this.alphabet = separator < '0' ? separator + "0123456789" : "0123456789" + separator;
+	}
+
+	public char getSeparator() {
+		return separator;
+	}
+
+	@Override
+	public String getRoot() {
+		return this.root;
+	}
+
+	@Override
+	public String encode(String parent, int sequence) {
+		if (sequence < 0) {
+			throw new IllegalArgumentException("Illegal sequence:" + sequence);
+		}
+		return new StringBuilder(parent == null ? this.root : parent).append(sequence).append(this.separator)
+				.toString();
+	}
+
+	@Override
+	public String getParentKey(String key) {
+		int count = 0, index1 = -1, index2 = -1;
+		for (int i = key.length() - 1; i > -1; i--) {
+			if (key.charAt(i) == this.separator) {
+				index1 = index2;
+				index2 = i;
+				if (++count > 2) {
+					break;
+				}
+			}
+		}
+		return count < 3 ? null : key.substring(0, index1 + 1);
+	}
+
+	@Override
+	public boolean isParentKey(String parent, String key) {
+		int length = parent == null ? 0 : parent.length();
+		return length > 1 && key != null && key.length() > length + 1 && parent.charAt(length - 1) == this.separator
+				&& key.startsWith(parent) && key.indexOf(this.separator, length) == key.length() - 1;
+	}
+
+	@Override
+	public String[] getAncestorKeys(String key) {
+		if (key == null || key.isEmpty()) {
+			return Strings.EMPTY_ARRAY;
+		}
+		int count = 0, last = key.length() - 1;
+		for (int i = 1; i < last; i++) {
+			if (key.charAt(i) == this.separator) {
+				count++;
+			}
+		}
+		if (count == 0) {
+			return Strings.EMPTY_ARRAY;
+		}
+		String[] keys = new String[count];
+		for (int i = 1, n = 0; i < last; i++) {
+			if (key.charAt(i) == this.separator) {
+				keys[n++] = key.substring(0, i + 1);
+			}
+		}
+		return keys;
+	}
+
+	@Override
+	public String getSuccessorKey(String prefix) {
+		if (prefix == null) {
+			return null;
+		}
+		for (int i = 0; i < prefix.length(); i++) {
+			if (this.alphabet.indexOf(prefix.charAt(i)) < 0) {
+				return null;
+			}
+		}
+		for (int i = prefix.length() - 1; i > -1; i--) {
+			int index = this.alphabet.indexOf(prefix.charAt(i));
+			if (index < this.alphabet.length() - 1) {
+				return new StringBuilder(i + 1).append(prefix, 0, i).append(this.alphabet.charAt(index + 1))
+						.toString();
+			}
+		}
+		return null;
+	}
+
+}
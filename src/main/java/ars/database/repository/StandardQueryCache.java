@@ -0,0 +1,240 @@
+package ars.database.repository;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ars.database.repository.QueryCache;
+
+/**
+ * 数据查询结果缓存标准实现
+ * 
+ * 仅缓存指定数据模型的查询结果，每个数据模型的查询结果按最近最少使用原则淘汰，并在超过有效时间后失效；
+ * 每次清除查询结果时记录数据模型的清除版本，查询开始后发生清除的查询结果不再写入缓存
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class StandardQueryCache implements QueryCache {
+	/**
+	 * 单个数据模型默认缓存数量
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	/**
+	 * 默认有效时间（毫秒）
+	 */
+	public static final long DEFAULT_TIMEOUT = 5 * 60 * 1000;
+
+	private int capacity = DEFAULT_CAPACITY; // 单个数据模型缓存数量
+	private long timeout = DEFAULT_TIMEOUT; // 有效时间（毫秒）
+	private Set<Class<?>> models = Collections.emptySet(); // 可缓存数据模型集合
+	private final ConcurrentMap<Class<?>, Map<String, Entry>> caches = new ConcurrentHashMap<Class<?>, Map<String, Entry>>();
+	private final ConcurrentMap<Class<?>, Set<Class<?>>> dependents = new ConcurrentHashMap<Class<?>, Set<Class<?>>>();
+	private final ConcurrentMap<Class<?>, Long> evictions = new ConcurrentHashMap<Class<?>, Long>(); // 数据模型最近清除版本
+	private final AtomicLong version = new AtomicLong(); // 缓存版本
+	private volatile long cleared; // 最近清除所有查询结果的版本
+
+	/**
+	 * 缓存条目
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	static final class Entry {
+		final Object value; // 查询结果
+		final long timestamp; // 缓存时间
+
+		Entry(Object value, long timestamp) {
+			this.value = value;
+			this.timestamp = timestamp;
+		}
+
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Illegal capacity:" + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	public long getTimeout() {
+		return timeout;
+	}
+
+	public void setTimeout(long timeout) {
+		if (timeout < 1) {
+			throw new IllegalArgumentException("Illegal timeout:" + timeout);
+		}
+		this.timeout = timeout;
+	}
+
+	public Set<Class<?>> getModels() {
+		return Collections.unmodifiableSet(this.models);
+	}
+
+	public void setModels(Class<?>... models) {
+		this.models = models == null || models.length == 0 ? Collections.<Class<?>> emptySet()
+				: new HashSet<Class<?>>(Arrays.asList(models));
+		this.clear();
+	}
+
+	/**
+	 * 获取数据模型查询结果缓存
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @return 查询结果缓存
+	 */
+	protected Map<String, Entry> getCache(Class<?> model) {
+		Map<String, Entry> cache = this.caches.get(model);
+		if (cache == null) {
+			cache = Collections.synchronizedMap(new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+					return this.size() > capacity;
+				}
+
+			});
+			Map<String, Entry> exists = this.caches.putIfAbsent(model, cache);
+			if (exists != null) {
+				cache = exists;
+			}
+		}
+		return cache;
+	}
+
+	@Override
+	public boolean isCacheable(Class<?> model) {
+		return model != null && this.models.contains(model);
+	}
+
+	/**
+	 * 判断查询开始后数据模型或关联模型的查询结果是否已被清除
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param relations
+	 *            查询关联的数据模型集合
+	 * @param version
+	 *            执行查询前获取的缓存版本
+	 * @return true/false
+	 */
+	protected boolean isEvicted(Class<?> model, Collection<Class<?>> relations, long version) {
+		if (this.cleared > version) {
+			return true;
+		}
+		Long eviction = this.evictions.get(model);
+		if (eviction != null && eviction > version) {
+			return true;
+		}
+		if (relations != null) {
+			for (Class<?> relation : relations) {
+				eviction = this.evictions.get(relation);
+				if (eviction != null && eviction > version) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public long getVersion() {
+		return this.version.get();
+	}
+
+	@Override
+	public Object get(Class<?> model, String key) {
+		if (model == null) {
+			throw new IllegalArgumentException("Illegal model:" + model);
+		}
+		if (key == null) {
+			throw new IllegalArgumentException("Illegal key:" + key);
+		}
+		Map<String, Entry> cache = this.caches.get(model);
+		Entry entry = cache == null ? null : cache.get(key);
+		if (entry == null) {
+			return null;
+		} else if (System.currentTimeMillis() - entry.timestamp > this.timeout) {
+			cache.remove(key);
+			return null;
+		}
+		return entry.value;
+	}
+
+	@Override
+	public void put(Class<?> model, String key, Object value, Collection<Class<?>> relations, long version) {
+		if (model == null) {
+			throw new IllegalArgumentException("Illegal model:" + model);
+		}
+		if (key == null) {
+			throw new IllegalArgumentException("Illegal key:" + key);
+		}
+		if (value == null || !this.isCacheable(model) || this.isEvicted(model, relations, version)) {
+			return;
+		}
+		if (relations != null && !relations.isEmpty()) {
+			for (Class<?> relation : relations) {
+				if (relation == model) {
+					continue;
+				}
+				Set<Class<?>> dependents = this.dependents.get(relation);
+				if (dependents == null) {
+					dependents = Collections.newSetFromMap(new ConcurrentHashMap<Class<?>, Boolean>());
+					Set<Class<?>> exists = this.dependents.putIfAbsent(relation, dependents);
+					if (exists != null) {
+						dependents = exists;
+					}
+				}
+				dependents.add(model);
+			}
+		}
+		Map<String, Entry> cache = this.getCache(model);
+		cache.put(key, new Entry(value, System.currentTimeMillis()));
+		if (this.isEvicted(model, relations, version)) { // 写入缓存期间发生清除
+			cache.remove(key);
+		}
+	}
+
+	@Override
+	public void evict(Class<?> model) {
+		if (model == null) {
+			throw new IllegalArgumentException("Illegal model:" + model);
+		}
+		long version = this.version.incrementAndGet();
+		Long eviction = this.evictions.putIfAbsent(model, version);
+		while (eviction != null && eviction < version && !this.evictions.replace(model, eviction, version)) {
+			eviction = this.evictions.get(model);
+		}
+		this.caches.remove(model);
+		Set<Class<?>> dependents = this.dependents.get(model);
+		if (dependents != null) {
+			for (Class<?> dependent : dependents) {
+				this.caches.remove(dependent);
+			}
+		}
+	}
+
+	@Override
+	public void clear() {
+		this.cleared = this.version.incrementAndGet();
+		this.caches.clear();
+		this.dependents.clear();
+	}
+
+}
@@ -0,0 +1,70 @@
+package ars.database.repository;
+
+/**
+ * 树标识编码接口
+ * 
+ * 树标识由根节点至当前节点的各级节点序号编码依次拼接而成，子孙节点标识均以祖先节点标识作为前缀
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public interface TreeKeyCodec {
+	/**
+	 * 获取根节点标识前缀（根节点标识去除自身序号编码后的部分）
+	 * 
+	 * @return 标识前缀
+	 */
+	public String getRoot();
+
+	/**
+	 * 构建树标识
+	 * 
+	 * @param parent
+	 *            父节点标识，根节点为null
+	 * @param sequence
+	 *            节点序号（不能小于0）
+	 * @return 树标识
+	 */
+	public String encode(String parent, int sequence);
+
+	/**
+	 * 获取父节点标识
+	 * 
+	 * @param key
+	 *            树标识
+	 * @return 父节点标识，根节点返回null
+	 */
+	public String getParentKey(String key);
+
+	/**
+	 * 判断是否为父节点标识（不创建中间字符串）
+	 * 
+	 * @param parent
+	 *            父节点标识
+	 * @param key
+	 *            树标识
+	 * @return true/false
+	 */
+	public boolean isParentKey(String parent, String key);
+
+	/**
+	 * 获取所有祖先节点标识
+	 * 
+	 * @param key
+	 *            树标识
+	 * @return 祖先节点标识数组（从根节点开始）
+	 */
+	public String[] getAncestorKeys(String key);
+
+	/**
+	 * 获取标识前缀的后继标识，即编码字符范围内大于所有以该前缀开头的标识的最小字符串
+	 * 
+	 * 数据库字段排序规则需与编码字符的字符顺序一致（如二进制排序规则），标识前缀范围条件才能准确匹配
+	 * 
+	 * @param prefix
+	 *            标识前缀
+	 * @return 后继标识，如果前缀包含编码范围外的字符或不存在后继标识则返回null
+	 */
+	public String getSuccessorKey(String prefix);
+
+}
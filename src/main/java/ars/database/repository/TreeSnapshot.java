@@ -0,0 +1,354 @@
+package ars.database.repository;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.lang.reflect.Field;
+
+import ars.util.Beans;
+import ars.database.model.Model;
+import ars.database.model.TreeModel;
+import ars.database.repository.Query;
+import ars.database.repository.Repositories;
+
+/**
+ * 树节点内存快照（不可变，修改操作返回新的快照对象）
+ * 
+ * 快照中的节点为持久化对象的脱管副本，只包含基本类型属性值，父节点替换为只包含主键及树标识的节点，子节点集合为空；节点按树标识排序。
+ * 查询时再次复制后返回，调用方可任意修改返回的节点
+ * 
+ * @author yongqiangwu
+ * 
+ * @param <T>
+ *            数据模型
+ */
+public class TreeSnapshot<T> {
+	/**
+	 * 树标识前缀匹配操作（区分大小写，与数据库树标识范围条件一致）
+	 */
+	private static final String KEY_START = "key_start";
+
+	/**
+	 * 树标识比较器
+	 */
+	private static final Comparator<Object> KEY_COMPARATOR = new Comparator<Object>() {
+
+		@Override
+		public int compare(Object o1, Object o2) {
+			return ((TreeModel<?>) o1).getKey().compareTo(((TreeModel<?>) o2).getKey());
+		}
+
+	};
+
+	private final Class<T> model; // 数据模型
+	private final List<T> nodes; // 节点列表
+	private final Map<String, T> keys; // 树标识索引
+	private final Map<Integer, T> identifiers; // 主键索引
+	private final Map<String, Field> fields; // 属性字段
+	private final long timestamp = System.currentTimeMillis(); // 快照时间
+
+	public TreeSnapshot(Class<T> model, Collection<T> nodes) {
+		this(model, nodes, true);
+	}
+
+	private TreeSnapshot(Class<T> model, Collection<T> nodes, boolean copy) {
+		if (model == null || !TreeModel.class.isAssignableFrom(model)) {
+			throw new IllegalArgumentException("Illegal model:" + model);
+		}
+		Field[] properties = Beans.getFields(model);
+		Map<String, Field> fields = new HashMap<String, Field>(properties.length);
+		for (Field property : properties) {
+			fields.put(property.getName(), property);
+		}
+		this.model = model;
+		this.fields = fields;
+		List<T> sorts = copy ? this.copy(nodes) : new ArrayList<T>(nodes);
+		Collections.sort(sorts, KEY_COMPARATOR);
+		Map<String, T> keys = new HashMap<String, T>(sorts.size());
+		Map<Integer, T> identifiers = new HashMap<Integer, T>(sorts.size());
+		for (T node : sorts) {
+			keys.put(((TreeModel<?>) node).getKey(), node);
+			identifiers.put(((Model) node).getId(), node);
+		}
+		this.nodes = Collections.unmodifiableList(sorts);
+		this.keys = Collections.unmodifiableMap(keys);
+		this.identifiers = Collections.unmodifiableMap(identifiers);
+	}
+
+	/**
+	 * 复制节点列表
+	 * 
+	 * @param nodes
+	 *            节点集合
+	 * @return 节点副本列表
+	 */
+	private List<T> copy(Collection<T> nodes) {
+		if (nodes == null) {
+			throw new IllegalArgumentException("Illegal nodes:" + nodes);
+		}
+		List<T> copies = new ArrayList<T>(nodes.size());
+		for (T node : nodes) {
+			copies.add(this.copy(node));
+		}
+		return copies;
+	}
+
+	/**
+	 * 复制节点（只复制基本类型属性值，父节点替换为只包含主键及树标识的节点，不引用任何会话相关的代理对象或集合对象）
+	 * 
+	 * @param node
+	 *            节点
+	 * @return 节点副本
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private T copy(T node) {
+		T copy = Beans.getInstance(this.model);
+		for (Field field : this.fields.values()) {
+			if (isPlain(field.getType())) {
+				Beans.setValue(copy, field, Beans.getValue(node, field));
+			}
+		}
+		TreeModel parent = ((TreeModel<?>) node).getParent();
+		if (parent != null) {
+			TreeModel reference = (TreeModel) Beans.getInstance(this.model);
+			reference.setId(parent.getId());
+			reference.setKey(Repositories.getParentKey(((TreeModel<?>) node).getKey()));
+			((TreeModel) copy).setParent(reference);
+		}
+		return copy;
+	}
+
+	/**
+	 * 判断属性类型是否为基本类型（基本类型、枚举及其数组）
+	 * 
+	 * @param type
+	 *            属性类型
+	 * @return true/false
+	 */
+	private static boolean isPlain(Class<?> type) {
+		Class<?> component = type.isArray() ? type.getComponentType() : type;
+		return Beans.isMetaClass(component) || component.isEnum();
+	}
+
+	public Class<T> getModel() {
+		return model;
+	}
+
+	public List<T> getNodes() {
+		return nodes;
+	}
+
+	public long getTimestamp() {
+		return timestamp;
+	}
+
+	/**
+	 * 获取节点数量
+	 * 
+	 * @return 节点数量
+	 */
+	public int size() {
+		return this.nodes.size();
+	}
+
+	/**
+	 * 根据树标识获取快照节点（只读）
+	 * 
+	 * @param key
+	 *            树标识
+	 * @return 快照节点
+	 */
+	public T getNode(String key) {
+		return this.keys.get(key);
+	}
+
+	/**
+	 * 根据主键获取快照节点（只读）
+	 * 
+	 * @param id
+	 *            主键
+	 * @return 快照节点
+	 */
+	public T getNode(Integer id) {
+		return this.identifiers.get(id);
+	}
+
+	/**
+	 * 合并节点（主键相同的节点将被替换，合并后的节点按树标识排序）
+	 * 
+	 * @param nodes
+	 *            节点集合
+	 * @return 新的快照对象
+	 */
+	public TreeSnapshot<T> with(Collection<T> nodes) {
+		if (nodes == null || nodes.isEmpty()) {
+			return this;
+		}
+		Map<Integer, T> merges = new LinkedHashMap<Integer, T>(this.nodes.size() + nodes.size());
+		for (T node : this.nodes) {
+			merges.put(((Model) node).getId(), node);
+		}
+		for (T node : this.copy(nodes)) {
+			merges.put(((Model) node).getId(), node);
+		}
+		return new TreeSnapshot<T>(this.model, merges.values(), false);
+	}
+
+	/**
+	 * 移除树标识对应的节点及其所有子孙节点
+	 * 
+	 * @param key
+	 *            树标识
+	 * @return 新的快照对象
+	 */
+	public TreeSnapshot<T> without(String key) {
+		if (key == null) {
+			return this;
+		}
+		List<T> remains = new ArrayList<T>(this.nodes.size());
+		for (T node : this.nodes) {
+			if (!((TreeModel<?>) node).getKey().startsWith(key)) {
+				remains.add(node);
+			}
+		}
+		return remains.size() == this.nodes.size() ? this : new TreeSnapshot<T>(this.model, remains, false);
+	}
+
+	/**
+	 * 根据请求参数筛选节点
+	 * 
+	 * 仅支持基本类型属性的等于、不等于、包含、比较、空值、前缀及模糊匹配条件，其他条件（关联属性、排序、分页等）返回null，由调用方回退到数据库查询
+	 * 
+	 * @param parameters
+	 *            请求参数
+	 * @return 节点副本列表，如果参数不支持内存筛选则返回null
+	 */
+	public List<T> select(Map<String, Object> parameters) {
+		List<Object[]> conditions = new ArrayList<Object[]>(parameters == null ? 0 : parameters.size());
+		if (parameters != null) {
+			for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+				Object[] condition = this.getCondition(entry.getKey(), entry.getValue());
+				if (condition == null) {
+					return null;
+				}
+				conditions.add(condition);
+			}
+		}
+		List<T> selects = new ArrayList<T>(conditions.isEmpty() ? this.nodes.size() : 0);
+		outer: for (T node : this.nodes) {
+			for (Object[] condition : conditions) {
+				if (!this.isMatched(Beans.getValue(node, ((Field) condition[0]).getName()), (String) condition[1],
+						(Object[]) condition[2])) {
+					continue outer;
+				}
+			}
+			selects.add(node);
+		}
+		return this.copy(selects);
+	}
+
+	/**
+	 * 解析筛选条件
+	 * 
+	 * @param property
+	 *            参数名称
+	 * @param value
+	 *            参数值
+	 * @return 条件数组（属性字段、操作、比较值数组），如果不支持内存筛选则返回null
+	 */
+	protected Object[] getCondition(String property, Object value) {
+		if (property == null || property.startsWith(Query.DELIMITER)) {
+			return null;
+		}
+		int index = property.indexOf(Query.DELIMITER);
+		String name = index < 0 ? property : property.substring(0, index);
+		String handle = index < 0 ? Query.EQ : property.substring(index + Query.DELIMITER.length()).toLowerCase();
+		Field field = this.fields.get(name);
+		if (field == null || !Beans.isMetaClass(field.getType())) {
+			return null;
+		}
+		if (handle.equals(Query.EMPTY) || handle.equals(Query.NOT_EMPTY)) {
+			return new Object[] { field, handle, new Object[0] };
+		} else if (Beans.isEmpty(value)) {
+			return null;
+		}
+		Object[] values = value instanceof Collection ? ((Collection<?>) value).toArray()
+				: value instanceof Object[] ? (Object[]) value : new Object[] { value };
+		if (handle.equals(Query.START) || handle.equals(Query.LIKE)) {
+			if (values.length != 1 || field.getType() != String.class) {
+				return null;
+			}
+			if (handle.equals(Query.START) && name.equals("key")) { // 树标识前缀区分大小写
+				return new Object[] { field, KEY_START, new Object[] { values[0].toString() } };
+			}
+			return new Object[] { field, handle, new Object[] { values[0].toString().toLowerCase() } };
+		} else if (handle.equals(Query.IN)) {
+			Object[] converts = new Object[values.length];
+			for (int i = 0; i < values.length; i++) {
+				converts[i] = Beans.toObject(field.getType(), values[i]);
+			}
+			return new Object[] { field, handle, converts };
+		} else if (values.length == 1
+				&& Arrays.asList(Query.EQ, Query.NE, Query.GT, Query.GE, Query.LT, Query.LE).contains(handle)) {
+			return new Object[] { field, handle, new Object[] { Beans.toObject(field.getType(), values[0]) } };
+		}
+		return null;
+	}
+
+	/**
+	 * 判断属性值是否满足筛选条件（与数据库语义一致，除空值条件外null不满足任何条件）
+	 * 
+	 * @param value
+	 *            属性值
+	 * @param handle
+	 *            操作
+	 * @param values
+	 *            比较值数组
+	 * @return true/false
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected boolean isMatched(Object value, String handle, Object[] values) {
+		if (handle.equals(Query.EMPTY)) {
+			return value == null;
+		} else if (handle.equals(Query.NOT_EMPTY)) {
+			return value != null;
+		} else if (value == null) {
+			return false;
+		} else if (handle.equals(Query.EQ)) {
+			return value.equals(values[0]);
+		} else if (handle.equals(Query.NE)) {
+			return !value.equals(values[0]);
+		} else if (handle.equals(Query.IN)) {
+			for (Object v : values) {
+				if (value.equals(v)) {
+					return true;
+				}
+			}
+			return false;
+		} else if (handle.equals(KEY_START)) {
+			return value.toString().startsWith((String) values[0]);
+		} else if (handle.equals(Query.START)) {
+			return value.toString().toLowerCase().startsWith((String) values[0]);
+		} else if (handle.equals(Query.LIKE)) {
+			return value.toString().toLowerCase().contains((String) values[0]);
+		} else if (!(value instanceof Comparable)) {
+			return false;
+		}
+		int compare = ((Comparable) value).compareTo(values[0]);
+		if (handle.equals(Query.GT)) {
+			return compare > 0;
+		} else if (handle.equals(Query.GE)) {
+			return compare >= 0;
+		} else if (handle.equals(Query.LT)) {
+			return compare < 0;
+		}
+		return compare <= 0;
+	}
+
+}
@@ -0,0 +1,239 @@
+package ars.database.repository;
+
+import java.util.Map;
+import java.util.HashMap;
+import java.util.Collection;
+
+import ars.database.model.Model;
+
+/**
+ * 请求级工作单元（对象实体标识映射）
+ * 
+ * 工作单元与当前线程绑定，在请求开始时创建、请求结束时销毁；同一请求内按主键从数据库加载过的对象实体保存其副本，再次加载时直接返回副本，避免重复查询数据库，该副本同时作为修改对象实体时的加载状态。
+ * 条件查询的结果及二级缓存中的副本不登记到工作单元，避免每次查询复制大量对象实体或以过期数据作为加载状态。
+ * 修改操作不在工作单元中缓存，仍由会话在事务提交时统一写入数据库，工作单元只负责移除已修改对象实体的副本
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public final class UnitOfWork {
+	/**
+	 * 默认最大对象实体数量
+	 */
+	public static final int DEFAULT_CAPACITY = 1000;
+
+	/**
+	 * 当前线程工作单元
+	 */
+	private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<UnitOfWork>();
+
+	private int size; // 对象实体数量
+	private int depth; // 嵌套层数
+	private int hits; // 命中次数
+	private int misses; // 未命中次数
+	private final int capacity; // 最大对象实体数量
+	private final Map<Class<?>, Map<Integer, Model>> objects = new HashMap<Class<?>, Map<Integer, Model>>();
+
+	private UnitOfWork(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Illegal capacity:" + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	/**
+	 * 开始工作单元，当前线程已存在工作单元时（嵌套请求）沿用该工作单元
+	 * 
+	 * @return 工作单元
+	 */
+	public static UnitOfWork begin() {
+		return begin(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * 开始工作单元，当前线程已存在工作单元时（嵌套请求）沿用该工作单元
+	 * 
+	 * @param capacity
+	 *            最大对象实体数量
+	 * @return 工作单元
+	 */
+	public static UnitOfWork begin(int capacity) {
+		UnitOfWork current = CURRENT.get();
+		if (current == null) {
+			current = new UnitOfWork(capacity);
+			CURRENT.set(current);
+		}
+		current.depth++;
+		return current;
+	}
+
+	/**
+	 * 结束工作单元，最外层请求结束时销毁工作单元
+	 */
+	public static void end() {
+		UnitOfWork current = CURRENT.get();
+		if (current != null && --current.depth < 1) {
+			CURRENT.remove();
+			current.clear();
+		}
+	}
+
+	/**
+	 * 获取当前线程工作单元
+	 * 
+	 * @return 工作单元，如果当前线程不存在工作单元则返回null
+	 */
+	public static UnitOfWork getCurrent() {
+		return CURRENT.get();
+	}
+
+	/**
+	 * 从当前线程工作单元中移除数据模型的所有对象实体
+	 * 
+	 * @param model
+	 *            数据模型
+	 */
+	public static void evictCurrent(Class<?> model) {
+		UnitOfWork current = CURRENT.get();
+		if (current != null) {
+			current.evict(model);
+		}
+	}
+
+	/**
+	 * 从当前线程工作单元中移除对象实体
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param id
+	 *            主键
+	 */
+	public static void evictCurrent(Class<?> model, Integer id) {
+		UnitOfWork current = CURRENT.get();
+		if (current != null) {
+			current.evict(model, id);
+		}
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public int getHits() {
+		return hits;
+	}
+
+	public int getMisses() {
+		return misses;
+	}
+
+	/**
+	 * 获取对象实体副本
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param id
+	 *            主键
+	 * @return 对象实体副本，如果工作单元中不存在该对象实体则返回null
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> T get(Class<T> model, Integer id) {
+		Map<Integer, Model> entities = this.objects.get(model);
+		Model entity = entities == null || id == null ? null : entities.get(id);
+		if (entity == null) {
+			this.misses++;
+			return null;
+		}
+		this.hits++;
+		return (T) entity.clone();
+	}
+
+	/**
+	 * 登记对象实体（保存对象实体副本，超过最大数量后不再登记）
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param object
+	 *            对象实体
+	 */
+	public void put(Class<?> model, Object object) {
+		if (!(object instanceof Model) || ((Model) object).getId() == null) {
+			return;
+		}
+		Map<Integer, Model> entities = this.objects.get(model);
+		if (entities == null) {
+			if (this.size >= this.capacity) {
+				return;
+			}
+			entities = new HashMap<Integer, Model>();
+			this.objects.put(model, entities);
+		}
+		Integer id = ((Model) object).getId();
+		if (entities.containsKey(id)) {
+			entities.put(id, ((Model) object).clone());
+		} else if (this.size < this.capacity) {
+			entities.put(id, ((Model) object).clone());
+			this.size++;
+		}
+	}
+
+	/**
+	 * 批量登记对象实体
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param objects
+	 *            对象实体集合
+	 */
+	public void putAll(Class<?> model, Collection<?> objects) {
+		if (objects != null) {
+			for (Object object : objects) {
+				if (this.size >= this.capacity) {
+					break;
+				}
+				this.put(model, object);
+			}
+		}
+	}
+
+	/**
+	 * 移除对象实体
+	 * 
+	 * @param model
+	 *            数据模型
+	 * @param id
+	 *            主键
+	 */
+	public void evict(Class<?> model, Integer id) {
+		Map<Integer, Model> entities = this.objects.get(model);
+		if (entities != null && id != null && entities.remove(id) != null) {
+			this.size--;
+		}
+	}
+
+	/**
+	 * 移除数据模型的所有对象实体
+	 * 
+	 * @param model
+	 *            数据模型
+	 */
+	public void evict(Class<?> model) {
+		Map<Integer, Model> entities = this.objects.remove(model);
+		if (entities != null) {
+			this.size -= entities.size();
+		}
+	}
+
+	/**
+	 * 清空工作单元
+	 */
+	public void clear() {
+		this.objects.clear();
+		this.size = 0;
+	}
+
+}
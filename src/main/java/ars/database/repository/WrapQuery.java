@@ -6,6 +6,8 @@ import java.util.Iterator;
 
 import ars.util.Conditions.Condition;
 import ars.database.repository.Query;
+import ars.database.repository.Page;
+import ars.database.repository.Cursor;
 
 /**
  * 数据包装查询实现
@@ -195,6 +197,11 @@ public class WrapQuery<T> implements Query<T> {
 		return this.query.paging(page, size);
 	}
 
+	@Override
+	public Query<T> after(Object... values) {
+		return this.query.after(values);
+	}
+
 	@Override
 	public Query<T> min(String... properties) {
 		return this.query.min(properties);
@@ -245,9 +252,24 @@ public class WrapQuery<T> implements Query<T> {
 		return this.query.list();
 	}
 
+	@Override
+	public Page<T> page() {
+		return this.query.page();
+	}
+
 	@Override
 	public List<?> stats() {
 		return this.query.stats();
 	}
 
+	@Override
+	public Cursor<T> cursor() {
+		return this.query.cursor();
+	}
+
+	@Override
+	public Cursor<T> cursor(int fetchSize) {
+		return this.query.cursor(fetchSize);
+	}
+
 }
@@ -1,20 +1,20 @@
 package ars.database.service;
 
 import java.util.Map;
-import java.util.Set;
 import java.util.List;
 import java.util.Date;
 import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Map.Entry;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.io.Serializable;
 import java.lang.reflect.Field;
-import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
-import java.lang.reflect.InvocationTargetException;
 
 import ars.util.Beans;
 import ars.database.model.Model;
@@ -22,6 +22,7 @@ import ars.database.model.TreeModel;
 import ars.database.repository.Query;
 import ars.database.repository.Repository;
 import ars.database.repository.Repositories;
+import ars.database.repository.AbstractRepository;
 import ars.database.service.AbstractService;
 import ars.database.service.event.InitEvent;
 import ars.database.service.event.SaveEvent;
@@ -54,8 +55,15 @@ public abstract class AbstractService<T> implements Service<T> {
 	protected static final String NONEMPTY_PARAM_SUFFIX = new StringBuilder(Query.DELIMITER).append(Query.NOT_EMPTY)
 			.toString();
 
+	/**
+	 * 外键对象批量加载时每批主键数量
+	 */
+	protected static final int REFERENCE_CHUNK_SIZE = 500;
+
 	private Class<T> model;
 	private Repository<T> repository;
+	private volatile List<PropertyBinder> binders; // 属性绑定器
+	private volatile Boolean queryCustomized; // 是否重写查询对象获取方法
 	private List<ServiceListener<?>> initListeners = new LinkedList<ServiceListener<?>>();
 	private List<ServiceListener<?>> saveListeners = new LinkedList<ServiceListener<?>>();
 	private List<ServiceListener<?>> queryListeners = new LinkedList<ServiceListener<?>>();
@@ -133,10 +141,24 @@ public abstract class AbstractService<T> implements Service<T> {
 	 * @param entity
 	 *            对象实体
 	 */
-	@SuppressWarnings({ "unchecked", "rawtypes" })
 	protected void onUpdateEvent(Requester requester, T entity) {
+		this.onUpdateEvent(requester, entity, null);
+	}
+
+	/**
+	 * 实体更新事件监听
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param entity
+	 *            对象实体
+	 * @param original
+	 *            修改前的对象实体副本，为null时由事件在需要时从数据库加载
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	protected void onUpdateEvent(Requester requester, T entity, T original) {
 		if (!this.updateListeners.isEmpty()) {
-			UpdateEvent event = new UpdateEvent(requester, this, entity);
+			UpdateEvent event = new UpdateEvent(requester, this, entity, original);
 			for (ServiceListener listener : this.updateListeners) {
 				listener.onServiceEvent(event);
 			}
@@ -161,6 +183,101 @@ public abstract class AbstractService<T> implements Service<T> {
 		}
 	}
 
+	/**
+	 * 获取数据模型属性绑定器（首次调用时解析数据模型及其父类的非静态属性，排除主键及树模型维护属性）
+	 * 
+	 * @return 属性绑定器列表
+	 */
+	private List<PropertyBinder> getBinders() {
+		if (this.binders == null) {
+			synchronized (this) {
+				if (this.binders == null) {
+					Class<?> model = this.model;
+					String primary = this.getRepository().getPrimary();
+					List<PropertyBinder> binders = new ArrayList<PropertyBinder>();
+					while (model != Object.class) {
+						for (Field field : model.getDeclaredFields()) {
+							String property = field.getName();
+							if (Modifier.isStatic(field.getModifiers()) || property.equals(primary)
+									|| (TreeModel.class.isAssignableFrom(model) && (property.equals("key")
+											|| property.equals("level") || property.equals("leaf")
+											|| property.equals("childCount")))) {
+								continue;
+							}
+							binders.add(new PropertyBinder(this.model, model, field));
+						}
+						model = model.getSuperclass();
+					}
+					this.binders = Collections.unmodifiableList(binders);
+				}
+			}
+		}
+		return this.binders;
+	}
+
+	/**
+	 * 批量加载外键对象（按主键分批查询，每批一条IN查询）
+	 * 
+	 * @param repository
+	 *            外键对象持久化对象
+	 * @param identifiers
+	 *            外键对象主键集合
+	 * @return 外键对象主键/对象映射
+	 */
+	@SuppressWarnings("unchecked")
+	protected Map<Object, Object> getReferences(Repository<?> repository, Collection<Object> identifiers) {
+		if (identifiers == null || identifiers.isEmpty()) {
+			return new HashMap<Object, Object>(0);
+		}
+		String primary = repository.getPrimary();
+		Map<Object, Object> references = new HashMap<Object, Object>(identifiers.size());
+		List<Object> chunk = new ArrayList<Object>(Math.min(identifiers.size(), REFERENCE_CHUNK_SIZE));
+		Iterator<Object> iterator = identifiers.iterator();
+		while (iterator.hasNext()) {
+			chunk.add(iterator.next());
+			if (chunk.size() == REFERENCE_CHUNK_SIZE || !iterator.hasNext()) {
+				for (Object object : ((Repository<Object>) repository).query().in(primary, chunk.toArray()).list()) {
+					references.put(Beans.getValue(object, primary), object);
+				}
+				chunk.clear();
+			}
+		}
+		for (Object id : identifiers) {
+			if (!references.containsKey(id)) { // 不存在的外键对象
+				references.put(id, null);
+			}
+		}
+		return references;
+	}
+
+	/**
+	 * 判断是否存在查询事件监听器（监听器可能修改查询条件）
+	 * 
+	 * @return true/false
+	 */
+	protected boolean isQueryListened() {
+		return !this.queryListeners.isEmpty();
+	}
+
+	/**
+	 * 判断子类是否重写查询对象获取方法（重写的方法可能附加查询条件）
+	 * 
+	 * @return true/false
+	 */
+	protected boolean isQueryCustomized() {
+		if (this.queryCustomized == null) {
+			try {
+				this.queryCustomized = this.getClass().getMethod("getQuery", Requester.class)
+						.getDeclaringClass() != AbstractService.class
+						|| this.getClass().getMethod("getQuery", Requester.class, boolean.class)
+								.getDeclaringClass() != AbstractService.class;
+			} catch (NoSuchMethodException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return this.queryCustomized;
+	}
+
 	@Override
 	public Class<T> getModel() {
 		return this.model;
@@ -212,82 +329,43 @@ public abstract class AbstractService<T> implements Service<T> {
 
 	@Override
 	public void initObject(Requester requester, T entity) {
-		Class<?> model = this.model;
-		String primary = this.getRepository().getPrimary();
 		Map<String, Object> parameters = requester.getParameters();
-		while (model != Object.class) {
-			for (Field field : model.getDeclaredFields()) {
-				String property = field.getName();
-				if (Modifier.isStatic(field.getModifiers()) || property.equals(primary)) {
-					continue;
-				}
-				if (!parameters.containsKey(property) || (TreeModel.class.isAssignableFrom(model)
-						&& (property.equals("key") || property.equals("level") || property.equals("leaf")))) {
-					continue;
-				}
-				Class<?> type = field.getType();
-				if (TreeModel.class.isAssignableFrom(type)
-						&& (property.equals("parent") || property.equals("children"))) {
-					type = this.model;
-				}
-				try {
-					Object value = parameters.get(property);
-					if (Collection.class.isAssignableFrom(type) || !Beans.isMetaClass(type)) {
-						Object current = Beans.getValue(entity, field);
-						if (Collection.class.isAssignableFrom(type)) {
-							Object[] values = Beans.toArray(Object.class, value);
-							Collection<Object> objects = Set.class.isAssignableFrom(type)
-									? new HashSet<Object>(values.length)
-									: new ArrayList<Object>(values.length);
-							Class<?>[] genericTypes = Beans.getGenericTypes(field);
-							if (genericTypes.length > 0) {
-								Class<?> genericType = genericTypes[0];
-								Repository<?> repository = Repositories.getRepository(genericType);
-								String foreignKey = repository.getPrimary();
-								Class<?> foreignKeyType = Beans.getField(genericType, foreignKey).getType();
-								if (values.length > 0) {
-									outer: for (Object v : values) {
-										if (v == null) {
-											continue;
-										}
-										if (!genericType.isAssignableFrom(v.getClass())) {
-											v = Beans.toObject(foreignKeyType, v);
-										}
-										for (Object o : (Collection<?>) current) {
-											if (Beans.isEqual(Beans.getValue(o, foreignKey), v)) {
-												objects.add(o);
-												continue outer;
-											}
-										}
-										objects.add(repository.get(v));
-									}
-								}
-							}
-							value = objects;
-						} else if (value != null && !type.isAssignableFrom(value.getClass())) {
-							Repository<?> repository = Repositories.getRepository(type);
-							String foreignKey = repository.getPrimary();
-							Class<?> foreignKeyType = Beans.getField(type, foreignKey).getType();
-							value = Beans.toObject(foreignKeyType, value);
-							value = Beans.isEqual(Beans.getValue(current, foreignKey), value) ? current
-									: repository.get(value);
-						}
-						Method method = Beans.getSetMethod(model, field);
-						try {
-							method.invoke(entity, value);
-						} catch (IllegalAccessException e) {
-							throw new RuntimeException(e);
-						} catch (InvocationTargetException e) {
-							throw new RuntimeException(e);
-						}
-						continue;
+		List<PropertyBinder> binders = new ArrayList<PropertyBinder>(parameters.size());
+		Map<Class<?>, Collection<Object>> identifiers = new HashMap<Class<?>, Collection<Object>>();
+		for (PropertyBinder binder : this.getBinders()) {
+			String property = binder.getProperty();
+			if (parameters.containsKey(property)) {
+				binders.add(binder);
+				Class<?> foreign = binder.getForeign();
+				if (foreign != null) {
+					Collection<Object> ids = identifiers.get(foreign);
+					if (ids == null) {
+						ids = new LinkedHashSet<Object>();
+						identifiers.put(foreign, ids);
+					}
+					try {
+						binder.collect(entity, parameters.get(property), ids);
+					} catch (IllegalArgumentException e) {
+						throw new ParameterInvalidException(property, e.getMessage());
 					}
-					Beans.setValue(entity, field, value);
-				} catch (IllegalArgumentException e) {
-					throw new ParameterInvalidException(property, e.getMessage());
 				}
 			}
-			model = model.getSuperclass();
+		}
+		Map<Class<?>, Map<Object, Object>> references = new HashMap<Class<?>, Map<Object, Object>>(
+				identifiers.size());
+		for (PropertyBinder binder : binders) {
+			Class<?> foreign = binder.getForeign();
+			if (foreign != null && !references.containsKey(foreign)) {
+				references.put(foreign, this.getReferences(binder.getForeignRepository(), identifiers.get(foreign)));
+			}
+		}
+		for (PropertyBinder binder : binders) {
+			String property = binder.getProperty();
+			try {
+				binder.bind(entity, parameters.get(property), references.get(binder.getForeign()));
+			} catch (IllegalArgumentException e) {
+				throw new ParameterInvalidException(property, e.getMessage());
+			}
 		}
 		this.onInitEvent(requester, entity);
 	}
@@ -298,7 +376,27 @@ public abstract class AbstractService<T> implements Service<T> {
 		if (object instanceof Model) {
 			Model entity = (Model) object;
 			entity.setCreator(requester.getUser());
-			if (object instanceof TreeModel) {
+			if (object instanceof TreeModel && !((TreeModel<?>) object).getChildren().isEmpty()
+					&& this.getRepository() instanceof AbstractRepository) {
+				List<T> nodes = new ArrayList<T>();
+				LinkedList<T> stack = new LinkedList<T>();
+				stack.add(object);
+				while (!stack.isEmpty()) {
+					T node = stack.removeFirst();
+					List<T> children = ((TreeModel) node).getChildren();
+					for (int i = children.size() - 1; i > -1; i--) {
+						stack.addFirst(children.get(i));
+					}
+					((Model) node).setCreator(requester.getUser());
+					nodes.add(node);
+				}
+				Serializable id = ((AbstractRepository<T>) this.getRepository()).saveTrees(Arrays.asList(object))
+						.get(0);
+				for (T node : nodes) {
+					this.onSaveEvent(requester, node);
+				}
+				return id;
+			} else if (object instanceof TreeModel) {
 				TreeModel<?> tree = (TreeModel<?>) object;
 				List<?> children = new ArrayList<Object>(tree.getChildren());
 				tree.getChildren().clear();
@@ -319,13 +417,39 @@ public abstract class AbstractService<T> implements Service<T> {
 
 	@Override
 	public void updateObject(Requester requester, T object) {
+		this.updateObject(requester, object, null);
+	}
+
+	/**
+	 * 修改对象
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param object
+	 *            数据对象
+	 * @param original
+	 *            修改前的对象实体副本，为null时由事件在需要时从数据库加载
+	 */
+	protected void updateObject(Requester requester, T object, T original) {
 		if (object instanceof Model) {
 			Model entity = (Model) object;
 			entity.setDateUpdate(new Date());
 			entity.setUpdater(requester.getUser());
 		}
 		this.getRepository().update(object);
-		this.onUpdateEvent(requester, object);
+		this.onUpdateEvent(requester, object, original);
+	}
+
+	/**
+	 * 复制对象实体的持久化属性，作为修改前的对象实体副本
+	 * 
+	 * @param object
+	 *            对象实体
+	 * @return 对象实体副本，如果对象实体不支持复制则返回null
+	 */
+	@SuppressWarnings("unchecked")
+	protected T copyObject(T object) {
+		return object instanceof Model ? (T) ((Model) object).clone() : null;
 	}
 
 	@Override
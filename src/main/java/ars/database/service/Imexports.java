@@ -336,12 +336,16 @@ public final class Imexports {
 				}
 				result.setTotal(objects.size());
 			} else {
+				T last = null;
 				Sheet sheet = null;
+				List<T> objects = null;
 				int r = 1, count = 0, length = 200;
-				int total = service.getQuery(requester).custom(requester.getParameters()).count();
-				for (int i = 1, pages = (int) Math.ceil((double) total / length); i <= pages; i++) {
-					List<T> objects = service.getQuery(requester).custom(requester.getParameters()).paging(i, length)
-							.list();
+				do {
+					Query<T> query = service.getQuery(requester).custom(requester.getParameters()).paging(1, length);
+					if (last != null) {
+						query.after(last);
+					}
+					objects = query.list();
 					for (int n = 0; n < objects.size(); n++) {
 						if (++count % 50000 == 1) {
 							r = 1;
@@ -350,7 +354,10 @@ public final class Imexports {
 						}
 						adapter.write(requester, service, objects.get(n), sheet.createRow(r++), count);
 					}
-				}
+					if (!objects.isEmpty()) {
+						last = objects.get(objects.size() - 1);
+					}
+				} while (objects.size() == length);
 				result.setTotal(count);
 			}
 			String name = new StringBuilder(UUID.randomUUID().toString()).append(".xlsx").toString();
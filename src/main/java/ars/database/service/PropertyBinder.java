@@ -0,0 +1,213 @@
+package ars.database.service;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationTargetException;
+
+import ars.util.Beans;
+import ars.database.model.TreeModel;
+import ars.database.repository.Repository;
+import ars.database.repository.Repositories;
+
+/**
+ * 对象属性绑定器
+ * 
+ * 属性类型、集合元素类型、外键类型及设置方法在创建时解析，绑定时不再进行反射查找；外键对应的数据持久化对象在首次使用时获取
+ * 
+ * @author yongqiangwu
+ * 
+ */
+final class PropertyBinder {
+	private final Field field; // 属性字段
+	private final Class<?> type; // 属性类型（树模型父子节点为当前数据模型）
+	private final boolean meta; // 是否为基本类型
+	private final boolean collection; // 是否为集合类型
+	private final boolean set; // 是否为Set集合
+	private final Class<?> foreign; // 外键对象类型（集合类型为元素类型）
+	private final Method method; // 属性设置方法
+	private volatile Repository<?> repository; // 外键对象持久化对象
+	private volatile Class<?> foreignKeyType; // 外键主键类型
+
+	public PropertyBinder(Class<?> model, Class<?> declaring, Field field) {
+		Class<?> type = field.getType();
+		if (TreeModel.class.isAssignableFrom(type)
+				&& (field.getName().equals("parent") || field.getName().equals("children"))) {
+			type = model;
+		}
+		this.field = field;
+		this.type = type;
+		this.collection = Collection.class.isAssignableFrom(type);
+		this.meta = !this.collection && Beans.isMetaClass(type);
+		this.set = Set.class.isAssignableFrom(type);
+		if (this.collection) {
+			Class<?>[] genericTypes = Beans.getGenericTypes(field);
+			this.foreign = genericTypes.length > 0 ? genericTypes[0] : null;
+		} else {
+			this.foreign = this.meta ? null : type;
+		}
+		this.method = this.meta ? null : Beans.getSetMethod(declaring, field);
+	}
+
+	/**
+	 * 获取属性名称
+	 * 
+	 * @return 属性名称
+	 */
+	public String getProperty() {
+		return this.field.getName();
+	}
+
+	/**
+	 * 获取外键对象持久化对象
+	 * 
+	 * @return 持久化对象
+	 */
+	private Repository<?> getRepository() {
+		if (this.repository == null) {
+			Repository<?> repository = Repositories.getRepository(this.foreign);
+			this.foreignKeyType = Beans.getField(this.foreign, repository.getPrimary()).getType();
+			this.repository = repository;
+		}
+		return this.repository;
+	}
+
+	/**
+	 * 获取外键对象类型
+	 * 
+	 * @return 外键对象类型，基本类型属性返回null
+	 */
+	public Class<?> getForeign() {
+		return this.foreign;
+	}
+
+	/**
+	 * 获取外键对象持久化对象
+	 * 
+	 * @return 持久化对象
+	 */
+	public Repository<?> getForeignRepository() {
+		return this.foreign == null ? null : this.getRepository();
+	}
+
+	/**
+	 * 收集需要加载的外键对象主键（对象属性中已存在的外键对象不再加载）
+	 * 
+	 * @param entity
+	 *            对象实体
+	 * @param value
+	 *            参数值
+	 * @param identifiers
+	 *            外键对象主键集合
+	 */
+	public void collect(Object entity, Object value, Collection<Object> identifiers) {
+		if (this.foreign == null || value == null) {
+			return;
+		}
+		String foreignKey = this.getRepository().getPrimary();
+		Object current = Beans.getValue(entity, this.field);
+		if (this.collection) {
+			outer: for (Object v : Beans.toArray(Object.class, value)) {
+				if (v == null || this.foreign.isAssignableFrom(v.getClass())) {
+					continue;
+				}
+				v = Beans.toObject(this.foreignKeyType, v);
+				if (current != null) {
+					for (Object o : (Collection<?>) current) {
+						if (Beans.isEqual(Beans.getValue(o, foreignKey), v)) {
+							continue outer;
+						}
+					}
+				}
+				identifiers.add(v);
+			}
+		} else if (!this.type.isAssignableFrom(value.getClass())) {
+			Object id = Beans.toObject(this.foreignKeyType, value);
+			if (!Beans.isEqual(Beans.getValue(current, foreignKey), id)) {
+				identifiers.add(id);
+			}
+		}
+	}
+
+	/**
+	 * 将参数值绑定到对象属性
+	 * 
+	 * @param entity
+	 *            对象实体
+	 * @param value
+	 *            参数值
+	 * @param references
+	 *            已加载的外键对象（主键/对象），不存在的外键对象将逐个加载
+	 */
+	public void bind(Object entity, Object value, Map<Object, Object> references) {
+		if (this.meta) {
+			Beans.setValue(entity, this.field, value);
+			return;
+		}
+		Object current = Beans.getValue(entity, this.field);
+		if (this.collection) {
+			Object[] values = Beans.toArray(Object.class, value);
+			Collection<Object> objects = this.set ? new HashSet<Object>(values.length) : new ArrayList<Object>(
+					values.length);
+			if (this.foreign != null && values.length > 0) {
+				Repository<?> repository = this.getRepository();
+				String foreignKey = repository.getPrimary();
+				outer: for (Object v : values) {
+					if (v == null) {
+						continue;
+					}
+					if (!this.foreign.isAssignableFrom(v.getClass())) {
+						v = Beans.toObject(this.foreignKeyType, v);
+					}
+					for (Object o : (Collection<?>) current) {
+						if (Beans.isEqual(Beans.getValue(o, foreignKey), v)) {
+							objects.add(o);
+							continue outer;
+						}
+					}
+					objects.add(this.getReference(repository, v, references));
+				}
+			}
+			value = objects;
+		} else if (value != null && !this.type.isAssignableFrom(value.getClass())) {
+			Repository<?> repository = this.getRepository();
+			String foreignKey = repository.getPrimary();
+			value = Beans.toObject(this.foreignKeyType, value);
+			value = Beans.isEqual(Beans.getValue(current, foreignKey), value) ? current : this.getReference(
+					repository, value, references);
+		}
+		try {
+			this.method.invoke(entity, value);
+		} catch (IllegalAccessException e) {
+			throw new RuntimeException(e);
+		} catch (InvocationTargetException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * 获取外键对象
+	 * 
+	 * @param repository
+	 *            外键对象持久化对象
+	 * @param id
+	 *            外键对象主键
+	 * @param references
+	 *            已加载的外键对象
+	 * @return 外键对象
+	 */
+	private Object getReference(Repository<?> repository, Object id, Map<Object, Object> references) {
+		if (id == null || this.foreign.isAssignableFrom(id.getClass())) {
+			return id;
+		}
+		if (references != null && references.containsKey(id)) {
+			return references.get(id);
+		}
+		return repository.get(id);
+	}
+
+}
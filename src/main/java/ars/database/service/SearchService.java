@@ -4,6 +4,7 @@ import java.util.List;
 
 import ars.invoke.local.Api;
 import ars.invoke.request.Requester;
+import ars.database.repository.Page;
 import ars.database.service.Service;
 
 /**
@@ -55,4 +56,14 @@ public interface SearchService<T> extends Service<T> {
 	@Api("objects")
 	public List<T> objects(Requester requester);
 
+	/**
+	 * 获取分页数据
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @return 分页数据
+	 */
+	@Api("page")
+	public Page<T> page(Requester requester);
+
 }
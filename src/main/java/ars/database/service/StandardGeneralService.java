@@ -1,13 +1,19 @@
 package ars.database.service;
 
 import java.util.List;
+import java.util.Date;
+import java.util.ArrayList;
 import java.io.Serializable;
 
 import ars.util.Beans;
 import ars.invoke.request.Requester;
+import ars.database.model.Model;
 import ars.database.model.TreeModel;
+import ars.database.repository.Page;
 import ars.database.repository.Repository;
 import ars.database.repository.Repositories;
+import ars.database.repository.TreeSnapshot;
+import ars.database.repository.AbstractRepository;
 import ars.database.service.AbstractService;
 
 /**
@@ -53,7 +59,6 @@ public abstract class StandardGeneralService<T> extends AbstractService<T> {
 	 * @param identifiers
 	 *            对象主键数组
 	 */
-	@SuppressWarnings("unchecked")
 	public void update(Requester requester, Object[] identifiers) {
 		if (identifiers.length > 0) {
 			Repository<T> repository = this.getRepository();
@@ -61,29 +66,35 @@ public abstract class StandardGeneralService<T> extends AbstractService<T> {
 			List<T> entities = this.getQuery(requester).or(primary, identifiers).list();
 			for (int i = 0; i < entities.size(); i++) {
 				T entity = entities.get(i);
+				T original = this.copyObject(entity);
 				Boolean active = entity instanceof TreeModel ? ((TreeModel<?>) entity).getActive() : null;
 				this.initObject(requester, entity);
-				this.updateObject(requester, entity);
+				this.updateObject(requester, entity, original);
 				if (active != null && active != ((TreeModel<?>) entity).getActive()) {
 					TreeModel<?> tree = (TreeModel<?>) entity;
+					List<T> relates = null;
 					if (tree.getActive() == Boolean.TRUE) {
-						TreeModel<?> parent = (TreeModel<?>) tree.getParent();
-						while (parent != null) {
-							if (parent.getActive() != Boolean.TRUE) {
-								parent.setActive(true);
-								((Repository<TreeModel<?>>) repository).update(parent);
+						String[] keys = Repositories.getAncestorKeys(tree.getKey());
+						if (keys.length > 0) {
+							relates = new ArrayList<T>(keys.length);
+							for (T parent : repository.query().in("key", keys).list()) {
+								if (((TreeModel<?>) parent).getActive() != Boolean.TRUE) {
+									relates.add(parent);
+								}
 							}
-							parent = (TreeModel<?>) parent.getParent();
 						}
 					} else if (tree.getActive() == Boolean.FALSE) {
-						List<T> children = repository.query().ne(primary, tree.getId()).eq("active", true)
+						relates = repository.query().ne(primary, tree.getId()).eq("active", true)
 								.start("key", tree.getKey()).list();
-						for (int j = 0; j < children.size(); j++) {
-							TreeModel<?> child = (TreeModel<?>) children.get(j);
-							if (child.getActive() != Boolean.FALSE) {
-								child.setActive(false);
-								((Repository<TreeModel<?>>) repository).update(child);
-							}
+					}
+					if (relates != null && !relates.isEmpty()) {
+						List<T> originals = new ArrayList<T>(relates.size());
+						for (int j = 0; j < relates.size(); j++) {
+							originals.add(this.copyObject(relates.get(j)));
+						}
+						this.activate(requester, relates, tree.getActive());
+						for (int j = 0; j < relates.size(); j++) {
+							this.onUpdateEvent(requester, relates.get(j), originals.get(j));
 						}
 					}
 				}
@@ -91,6 +102,93 @@ public abstract class StandardGeneralService<T> extends AbstractService<T> {
 		}
 	}
 
+	/**
+	 * 将对象移动到目标对象之前
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param id
+	 *            对象主键
+	 * @param target
+	 *            目标对象主键
+	 */
+	public void moveBefore(Requester requester, Object id, Object target) {
+		this.reorder(requester, id, target, true);
+	}
+
+	/**
+	 * 将对象移动到目标对象之后
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param id
+	 *            对象主键
+	 * @param target
+	 *            目标对象主键
+	 */
+	public void moveAfter(Requester requester, Object id, Object target) {
+		this.reorder(requester, id, target, false);
+	}
+
+	/**
+	 * 调整对象排序
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param id
+	 *            对象主键
+	 * @param target
+	 *            目标对象主键
+	 * @param before
+	 *            是否移动到目标对象之前
+	 */
+	protected void reorder(Requester requester, Object id, Object target, boolean before) {
+		Repository<T> repository = this.getRepository();
+		String primary = repository.getPrimary();
+		T entity = this.getQuery(requester).eq(primary, id).single();
+		if (entity == null) {
+			throw new IllegalArgumentException("Illegal id:" + id);
+		}
+		T other = this.getQuery(requester).eq(primary, target).single();
+		if (other == null) {
+			throw new IllegalArgumentException("Illegal target:" + target);
+		}
+		T original = this.copyObject(entity);
+		if (entity instanceof Model) {
+			((Model) entity).setDateUpdate(new Date());
+			((Model) entity).setUpdater(requester.getUser());
+		}
+		if (before) {
+			repository.moveBefore(entity, other);
+		} else {
+			repository.moveAfter(entity, other);
+		}
+		this.onUpdateEvent(requester, entity, original);
+	}
+
+	/**
+	 * 批量设置树节点激活状态，同时设置修改时间及修改人
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param trees
+	 *            树节点列表
+	 * @param active
+	 *            是否激活
+	 */
+	protected void activate(Requester requester, List<T> trees, boolean active) {
+		Repository<T> repository = this.getRepository();
+		if (repository instanceof AbstractRepository) {
+			((AbstractRepository<T>) repository).activate(trees, active, requester.getUser());
+		} else {
+			for (int i = 0; i < trees.size(); i++) {
+				((TreeModel<?>) trees.get(i)).setActive(active);
+				((TreeModel<?>) trees.get(i)).setUpdater(requester.getUser());
+			}
+			repository.updateAll(trees);
+		}
+	}
+
 	/**
 	 * 统计数量
 	 * 
@@ -135,6 +233,17 @@ public abstract class StandardGeneralService<T> extends AbstractService<T> {
 		return this.getQuery(requester).custom(requester.getParameters()).list();
 	}
 
+	/**
+	 * 获取分页数据
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @return 分页数据
+	 */
+	public Page<T> page(Requester requester) {
+		return this.getQuery(requester).custom(requester.getParameters()).page();
+	}
+
 	/**
 	 * 获取树对象列表
 	 * 
@@ -144,7 +253,17 @@ public abstract class StandardGeneralService<T> extends AbstractService<T> {
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public List<T> trees(Requester requester) {
-		List<T> objects = this.getQuery(requester).custom(requester.getParameters()).list();
+		List<T> objects = null;
+		Repository<T> repository = this.getRepository();
+		if (repository instanceof AbstractRepository && !this.isQueryListened() && !this.isQueryCustomized()) {
+			TreeSnapshot<T> snapshot = ((AbstractRepository<T>) repository).getTreeSnapshot();
+			if (snapshot != null) {
+				objects = snapshot.select(requester.getParameters());
+			}
+		}
+		if (objects == null) {
+			objects = this.getQuery(requester).custom(requester.getParameters()).list();
+		}
 		return (List<T>) Repositories.mergeTrees((List<TreeModel>) objects);
 	}
 
@@ -25,4 +25,32 @@ public interface UpdateService<T> extends Service<T> {
 	@Api("update")
 	public void update(Requester requester, @Param(name = "id", required = true) Object[] identifiers);
 
+	/**
+	 * 将对象移动到目标对象之前
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param id
+	 *            对象主键
+	 * @param target
+	 *            目标对象主键
+	 */
+	@Api("moveBefore")
+	public void moveBefore(Requester requester, @Param(name = "id", required = true) Object id,
+			@Param(name = "target", required = true) Object target);
+
+	/**
+	 * 将对象移动到目标对象之后
+	 * 
+	 * @param requester
+	 *            请求对象
+	 * @param id
+	 *            对象主键
+	 * @param target
+	 *            目标对象主键
+	 */
+	@Api("moveAfter")
+	public void moveAfter(Requester requester, @Param(name = "id", required = true) Object id,
+			@Param(name = "target", required = true) Object target);
+
 }
@@ -1,10 +1,21 @@
 package ars.database.service.event;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.List;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.lang.reflect.Field;
+
 import ars.invoke.request.Requester;
 import ars.util.Beans;
 import ars.database.service.Service;
 import ars.database.service.event.ServiceEvent;
-import ars.database.repository.Repository;
 
 /**
  * 模型实体修改事件
@@ -17,25 +28,87 @@ public class UpdateEvent extends ServiceEvent {
 
 	private transient Object entity; // 当前对象实体
 	private transient Object original; // 原始对象实体
+	private transient Set<String> changes; // 发生变化的属性名称
 
 	public UpdateEvent(Requester requester, Service<?> service, Object entity) {
+		this(requester, service, entity, null);
+	}
+
+	public UpdateEvent(Requester requester, Service<?> service, Object entity, Object original) {
 		super(requester, service);
 		if (entity == null) {
 			throw new IllegalArgumentException("Illegal entity:" + entity);
 		}
 		this.entity = entity;
+		this.original = original;
 	}
 
 	public Object getEntity() {
 		return entity;
 	}
 
+	/**
+	 * 获取原始对象实体
+	 * 
+	 * @return 创建事件时提供的原始对象实体副本，未提供时返回null
+	 */
 	public Object getOriginal() {
-		if (this.original == null) {
-			Repository<?> repository = this.getService().getRepository();
-			this.original = repository.get(Beans.getValue(this.entity, repository.getPrimary()));
-		}
 		return original;
 	}
 
+	/**
+	 * 获取发生变化的属性名称（集合、映射及数组属性按内容比较）
+	 * 
+	 * @return 属性名称集合，创建事件时未提供原始对象实体副本则返回null
+	 */
+	public Set<String> getChanges() {
+		if (this.changes == null && this.original != null) {
+			Set<String> changes = new LinkedHashSet<String>();
+			for (Field field : Beans.getFields(this.entity.getClass())) {
+				if (!isEqual(Beans.getValue(this.original, field), Beans.getValue(this.entity, field))) {
+					changes.add(field.getName());
+				}
+			}
+			this.changes = Collections.unmodifiableSet(changes);
+		}
+		return changes;
+	}
+
+	/**
+	 * 判断属性是否发生变化，无法确定（未提供原始对象实体副本）时视为发生变化
+	 * 
+	 * @param property
+	 *            属性名称
+	 * @return true/false
+	 */
+	public boolean isChanged(String property) {
+		Set<String> changes = this.getChanges();
+		return changes == null || changes.contains(property);
+	}
+
+	/**
+	 * 比较属性值是否相同，集合、映射及数组按内容比较
+	 * 
+	 * @param value
+	 *            原始属性值
+	 * @param other
+	 *            当前属性值
+	 * @return true/false
+	 */
+	private static boolean isEqual(Object value, Object other) {
+		if (value == other) {
+			return true;
+		} else if (value instanceof List && other instanceof List) {
+			return new ArrayList<Object>((List<?>) value).equals(new ArrayList<Object>((List<?>) other));
+		} else if (value instanceof Collection && other instanceof Collection) {
+			return ((Collection<?>) value).size() == ((Collection<?>) other).size()
+					&& new HashSet<Object>((Collection<?>) value).equals(new HashSet<Object>((Collection<?>) other));
+		} else if (value instanceof Map && other instanceof Map) {
+			return new HashMap<Object, Object>((Map<?, ?>) value).equals(new HashMap<Object, Object>((Map<?, ?>) other));
+		} else if (value != null && other != null && value.getClass().isArray() && other.getClass().isArray()) {
+			return Arrays.deepEquals(new Object[] { value }, new Object[] { other });
+		}
+		return Beans.isEqual(value, other);
+	}
+
 }
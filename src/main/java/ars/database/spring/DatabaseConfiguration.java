@@ -3,6 +3,7 @@ package ars.database.spring;
 import java.util.Map;
 import java.util.List;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map.Entry;
 import java.util.LinkedList;
 import java.util.Collection;
@@ -10,6 +11,7 @@ import java.util.Collections;
 import java.lang.reflect.Method;
 
 import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.aop.framework.Advised;
 import org.springframework.context.ApplicationContext;
@@ -20,8 +22,11 @@ import ars.database.service.Services;
 import ars.database.service.ServiceFactory;
 import ars.database.service.event.ServiceEvent;
 import ars.database.service.event.ServiceListener;
+import ars.database.repository.QueryCache;
+import ars.database.repository.TreeKeyCodec;
 import ars.database.repository.Repository;
 import ars.database.repository.Repositories;
+import ars.database.repository.AbstractRepository;
 import ars.database.repository.RepositoryFactory;
 import ars.database.repository.DataConstraintException;
 import ars.invoke.convert.ThrowableResolver;
@@ -33,7 +38,7 @@ import ars.invoke.convert.ThrowableResolver;
  * 
  */
 public class DatabaseConfiguration implements ThrowableResolver, ServiceFactory, RepositoryFactory,
-		ApplicationContextAware {
+		ApplicationContextAware, DisposableBean {
 	/**
 	 * 数据关联异常编码
 	 */
@@ -48,6 +53,18 @@ public class DatabaseConfiguration implements ThrowableResolver, ServiceFactory,
 		Services.setServiceFactory(this);
 		Repositories.setRepositoryFactory(this);
 
+		// 加载数据查询结果缓存
+		Collection<QueryCache> caches = applicationContext.getBeansOfType(QueryCache.class).values();
+		if (!caches.isEmpty()) {
+			Repositories.setQueryCache(caches.iterator().next());
+		}
+
+		// 加载树标识编码
+		Collection<TreeKeyCodec> codecs = applicationContext.getBeansOfType(TreeKeyCodec.class).values();
+		if (!codecs.isEmpty()) {
+			Repositories.setTreeKeyCodec(codecs.iterator().next());
+		}
+
 		// 加载数据模型对应的持久化操作对象
 		Collection<Repository> repositories = applicationContext.getBeansOfType(Repository.class).values();
 		this.repositories = new HashMap<Class<?>, Repository<?>>(repositories.size());
@@ -174,4 +191,16 @@ public class DatabaseConfiguration implements ThrowableResolver, ServiceFactory,
 		return repository;
 	}
 
+	@Override
+	public void destroy() throws Exception {
+		for (Repository<?> repository : new HashSet<Repository<?>>(this.repositories.values())) {
+			if (AopUtils.isAopProxy(repository)) {
+				repository = (Repository<?>) ((Advised) repository).getTargetSource().getTarget();
+			}
+			if (repository instanceof AbstractRepository) {
+				((AbstractRepository<?>) repository).destroy();
+			}
+		}
+	}
+
 }
@@ -1,10 +1,13 @@
 package ars.database.spring;
 
+import java.util.Map;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.LinkedList;
 import java.util.Comparator;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 
 import org.springframework.context.event.ContextRefreshedEvent;
 
@@ -55,6 +58,8 @@ public class EntitySynchronUpgrader<T> extends ApplicationInitializer {
 	 */
 	@SuppressWarnings({ "unchecked", "rawtypes" })
 	protected void synchron(Collection<T> sources, Collection<T> targets) {
+		List<T> saves = new LinkedList<T>();
+		List<T> updates = new LinkedList<T>();
 		outer: for (T target : targets) {
 			for (T source : sources) {
 				if (this.comparator.compare(source, target) == 0) {
@@ -79,7 +84,7 @@ public class EntitySynchronUpgrader<T> extends ApplicationInitializer {
 							}
 						}
 						if (different) {
-							Repositories.update(source);
+							updates.add(source);
 						}
 					}
 					continue outer;
@@ -88,9 +93,37 @@ public class EntitySynchronUpgrader<T> extends ApplicationInitializer {
 			if (target instanceof TreeModel) {
 				Repositories.saveTree((TreeModel) target);
 			} else {
-				Repositories.save(target);
+				saves.add(target);
 			}
 		}
+		for (Entry<Class<T>, List<T>> entry : this.group(updates).entrySet()) {
+			Repositories.getRepository(entry.getKey()).updateAll(entry.getValue());
+		}
+		for (Entry<Class<T>, List<T>> entry : this.group(saves).entrySet()) {
+			Repositories.getRepository(entry.getKey()).saveAll(entry.getValue());
+		}
+	}
+
+	/**
+	 * 按照对象类型分组（保持对象实体原有顺序）
+	 * 
+	 * @param entities
+	 *            对象实体集合
+	 * @return 对象类型/对象实体列表
+	 */
+	@SuppressWarnings("unchecked")
+	protected Map<Class<T>, List<T>> group(Collection<T> entities) {
+		Map<Class<T>, List<T>> groups = new LinkedHashMap<Class<T>, List<T>>();
+		for (T entity : entities) {
+			Class<T> type = (Class<T>) entity.getClass();
+			List<T> group = groups.get(type);
+			if (group == null) {
+				group = new LinkedList<T>();
+				groups.put(type, group);
+			}
+			group.add(entity);
+		}
+		return groups;
 	}
 
 	@SuppressWarnings({ "rawtypes", "unchecked" })
@@ -5,6 +5,7 @@ import java.util.Map;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.Map.Entry;
 import java.util.Collection;
 import java.util.LinkedList;
@@ -81,6 +82,7 @@ public class HibernateDatabaseConfiguration extends DatabaseConfiguration implem
 	private static Map<Class<?>, Map<Class<?>, List<Property>>> VALIDATE_MODEL_RELATE_MAPPING = new HashMap<Class<?>, Map<Class<?>, List<Property>>>(); // 数据模型关联属性映射
 
 	private String validate; // 数据验证模型
+	private Collection<SessionFactory> sessionFactories = Collections.emptyList(); // 已绑定的会话工厂
 
 	public String getValidate() {
 		return validate;
@@ -184,12 +186,14 @@ public class HibernateDatabaseConfiguration extends DatabaseConfiguration implem
 	@SuppressWarnings("rawtypes")
 	protected void bindSessionFactory(ApplicationContext applicationContext) {
 		Collection<SessionFactory> sessionFactories = applicationContext.getBeansOfType(SessionFactory.class).values();
+		this.sessionFactories = new ArrayList<SessionFactory>(sessionFactories);
 		Map<Class<?>, SessionFactory> modelSessionFactoryMappings = new HashMap<Class<?>, SessionFactory>();
 		for (SessionFactory sessionFactory : sessionFactories) {
 			Collection<ClassMetadata> classMetadatas = sessionFactory.getAllClassMetadata().values();
 			for (ClassMetadata classMetadata : classMetadatas) {
 				modelSessionFactoryMappings.put(classMetadata.getMappedClass(), sessionFactory);
 			}
+			Hibernates.initPropertyMetadata(sessionFactory);
 		}
 
 		// 绑定数据持久化对象会话工厂实例
@@ -212,6 +216,7 @@ public class HibernateDatabaseConfiguration extends DatabaseConfiguration implem
 				throw new RuntimeException("No matching session factory:" + model);
 			}
 			((HibernateSimpleRepository<?>) repository).setSessionFactory(sessionFactory);
+			((HibernateSimpleRepository<?>) repository).prepareClosureTable();
 		}
 	}
 
@@ -245,7 +250,7 @@ public class HibernateDatabaseConfiguration extends DatabaseConfiguration implem
 					String name = property.getName();
 					if (TreeModel.class.isAssignableFrom(mappedClass)
 							&& (name.equals("key") || name.equals("level") || name.equals("leaf")
-									|| name.equals("parent") || name.equals("children"))) {
+									|| name.equals("childCount") || name.equals("parent") || name.equals("children"))) {
 						continue;
 					}
 					mappedProperties.add(property);
@@ -490,6 +495,14 @@ public class HibernateDatabaseConfiguration extends DatabaseConfiguration implem
 		this.registerEventListener(applicationContext);
 	}
 
+	@Override
+	public void destroy() throws Exception {
+		super.destroy();
+		for (SessionFactory sessionFactory : this.sessionFactories) {
+			Hibernates.clearPropertyMetadata(sessionFactory);
+		}
+	}
+
 	@Override
 	public Object adaption(Object object) {
 		if (Hibernate.isInitialized(object)) {
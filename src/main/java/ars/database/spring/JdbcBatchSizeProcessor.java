@@ -0,0 +1,48 @@
+package ars.database.spring;
+
+import java.util.Properties;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.orm.hibernate4.LocalSessionFactoryBean;
+
+import ars.database.repository.AbstractRepository;
+
+/**
+ * JDBC批处理配置处理器（会话工厂创建前为未配置hibernate.jdbc.batch_size的会话工厂设置默认批处理数量）
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class JdbcBatchSizeProcessor implements BeanPostProcessor {
+	private int jdbcBatchSize = AbstractRepository.DEFAULT_BATCH_SIZE; // 默认JDBC批处理数量
+
+	public int getJdbcBatchSize() {
+		return jdbcBatchSize;
+	}
+
+	public void setJdbcBatchSize(int jdbcBatchSize) {
+		if (jdbcBatchSize < 1) {
+			throw new IllegalArgumentException("Illegal jdbcBatchSize:" + jdbcBatchSize);
+		}
+		this.jdbcBatchSize = jdbcBatchSize;
+	}
+
+	@Override
+	public Object postProcessBeforeInitialization(Object bean, String beanName) throws BeansException {
+		if (bean instanceof LocalSessionFactoryBean) {
+			Properties properties = ((LocalSessionFactoryBean) bean).getHibernateProperties();
+			if (!properties.containsKey(AvailableSettings.STATEMENT_BATCH_SIZE)) {
+				properties.setProperty(AvailableSettings.STATEMENT_BATCH_SIZE, String.valueOf(this.jdbcBatchSize));
+			}
+		}
+		return bean;
+	}
+
+	@Override
+	public Object postProcessAfterInitialization(Object bean, String beanName) throws BeansException {
+		return bean;
+	}
+
+}
@@ -0,0 +1,38 @@
+package ars.database.spring;
+
+import ars.invoke.event.InvokeEvent;
+import ars.invoke.event.InvokeListener;
+import ars.invoke.event.InvokeBeforeEvent;
+import ars.invoke.event.InvokeCompleteEvent;
+import ars.database.repository.UnitOfWork;
+
+/**
+ * 请求级工作单元监听器（请求开始时创建工作单元，请求结束时销毁）
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class UnitOfWorkListener implements InvokeListener<InvokeEvent> {
+	private int capacity = UnitOfWork.DEFAULT_CAPACITY; // 工作单元最大对象实体数量
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public void setCapacity(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Illegal capacity:" + capacity);
+		}
+		this.capacity = capacity;
+	}
+
+	@Override
+	public void onInvokeEvent(InvokeEvent event) {
+		if (event instanceof InvokeBeforeEvent) {
+			UnitOfWork.begin(this.capacity);
+		} else if (event instanceof InvokeCompleteEvent) {
+			UnitOfWork.end();
+		}
+	}
+
+}
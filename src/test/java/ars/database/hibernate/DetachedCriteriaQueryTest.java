@@ -0,0 +1,88 @@
+package ars.database.hibernate;
+
+import java.util.Arrays;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Method;
+import java.lang.reflect.InvocationHandler;
+
+import org.junit.Test;
+import org.junit.Assert;
+import org.hibernate.SessionFactory;
+
+import ars.database.hibernate.DetachedCriteriaQuery;
+
+/**
+ * 基于Hibernate标准查询的数据查询测试
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class DetachedCriteriaQueryTest {
+
+	/**
+	 * 测试数据模型
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	static class Sample {
+
+	}
+
+	/**
+	 * 创建数据查询对象（条件值不做类型转换）
+	 * 
+	 * @return 数据查询对象
+	 */
+	private DetachedCriteriaQuery<Sample> createQuery() {
+		SessionFactory sessionFactory = (SessionFactory) Proxy.newProxyInstance(this.getClass().getClassLoader(),
+				new Class<?>[] { SessionFactory.class }, new InvocationHandler() {
+
+					@Override
+					public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+						return null;
+					}
+
+				});
+		return new DetachedCriteriaQuery<Sample>(sessionFactory, Sample.class) {
+
+			@Override
+			protected ConditionWrapper getConditionWrapper(String property, Object value) {
+				return new ConditionWrapper(property, value);
+			}
+
+		};
+	}
+
+	@Test
+	public void testAfterCriterionAsc() {
+		Assert.assertEquals("((name>b) or (name=b and id>5))",
+				this.createQuery().getAfterCriterion(Arrays.asList("+name", "+id"), new Object[] { "b", 5 })
+						.toString());
+	}
+
+	@Test
+	public void testAfterCriterionDesc() {
+		// 降序时空值排在最后
+		Assert.assertEquals("((name<b or name is null) or (name=b and id>5))",
+				this.createQuery().getAfterCriterion(Arrays.asList("-name", "+id"), new Object[] { "b", 5 })
+						.toString());
+	}
+
+	@Test
+	public void testAfterCriterionNullAsc() {
+		// 升序时空值排在最前，空值之后为所有非空值
+		Assert.assertEquals("((name is not null) or (name is null and id>5))",
+				this.createQuery().getAfterCriterion(Arrays.asList("+name", "+id"), new Object[] { null, 5 })
+						.toString());
+	}
+
+	@Test
+	public void testAfterCriterionNullDesc() {
+		// 降序时空值排在最后，空值之后只有相同空值中主键更大的数据
+		Assert.assertEquals("((name is null and id>5))",
+				this.createQuery().getAfterCriterion(Arrays.asList("-name", "+id"), new Object[] { null, 5 })
+						.toString());
+	}
+
+}
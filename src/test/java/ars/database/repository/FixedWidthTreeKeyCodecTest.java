@@ -0,0 +1,74 @@
+package ars.database.repository;
+
+import org.junit.Test;
+import org.junit.Assert;
+
+import ars.database.repository.FixedWidthTreeKeyCodec;
+
+/**
+ * 定长树标识编码测试
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class FixedWidthTreeKeyCodecTest {
+	private final FixedWidthTreeKeyCodec codec = new FixedWidthTreeKeyCodec(36, 2);
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalRadix() {
+		new FixedWidthTreeKeyCodec(37, 2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testIllegalSequence() {
+		this.codec.encode(null, 36 * 36);
+	}
+
+	@Test
+	public void testEncode() {
+		Assert.assertEquals("00", this.codec.encode(null, 0));
+		Assert.assertEquals("0Z", this.codec.encode(null, 35));
+		Assert.assertEquals("0A11", this.codec.encode("0A", 37));
+	}
+
+	@Test
+	public void testGetParentKey() {
+		Assert.assertNull(this.codec.getParentKey("0A"));
+		Assert.assertEquals("0A", this.codec.getParentKey("0A11"));
+	}
+
+	@Test
+	public void testIsParentKey() {
+		Assert.assertTrue(this.codec.isParentKey("0A", "0A11"));
+		Assert.assertFalse(this.codec.isParentKey("0A", "0A1122"));
+		Assert.assertFalse(this.codec.isParentKey("0A", "0B11"));
+	}
+
+	@Test
+	public void testGetAncestorKeys() {
+		Assert.assertArrayEquals(new String[0], this.codec.getAncestorKeys("0A"));
+		Assert.assertArrayEquals(new String[] { "0A", "0A11" }, this.codec.getAncestorKeys("0A1122"));
+	}
+
+	@Test
+	public void testGetSuccessorKey() {
+		Assert.assertEquals("0B", this.codec.getSuccessorKey("0A"));
+		Assert.assertEquals("1", this.codec.getSuccessorKey("0Z"));
+		Assert.assertEquals("0A12", this.codec.getSuccessorKey("0A11"));
+		Assert.assertNull(this.codec.getSuccessorKey("ZZ"));
+		Assert.assertNull(this.codec.getSuccessorKey("0a"));
+		Assert.assertNull(this.codec.getSuccessorKey(null));
+	}
+
+	@Test
+	public void testSuccessorKeyBounds() {
+		String prefix = "0Z";
+		String bound = this.codec.getSuccessorKey(prefix);
+		for (int i = 0; i < 36 * 36; i += 7) {
+			String key = this.codec.encode(prefix, i);
+			Assert.assertTrue(key.compareTo(prefix) >= 0 && key.compareTo(bound) < 0);
+		}
+		Assert.assertFalse(this.codec.encode(null, 36).compareTo(bound) < 0);
+	}
+
+}
@@ -0,0 +1,132 @@
+package ars.database.repository;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Random;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ars.database.repository.Repositories;
+import ars.database.repository.RepositoriesTest.Node;
+
+/**
+ * 树对象合并性能测试（当前实现与原哈希分组实现对比）
+ * 
+ * 运行方式：在测试类路径下执行main方法
+ * 
+ * @author yongqiangwu
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MergeTreesBenchmark {
+	/**
+	 * 每个节点的子节点数量
+	 */
+	private static final int FANOUT = 10;
+
+	@Param({ "1000", "200000" })
+	private int size; // 节点数量
+
+	private List<Node> nodes; // 乱序的节点列表
+
+	@Setup
+	public void setup() {
+		this.nodes = new ArrayList<Node>(this.size);
+		LinkedList<Node> queue = new LinkedList<Node>();
+		for (int i = 0; i < FANOUT && this.nodes.size() < this.size; i++) {
+			Node root = new Node(Repositories.getTreeKeyCodec().encode(null, i));
+			this.nodes.add(root);
+			queue.add(root);
+		}
+		while (this.nodes.size() < this.size) {
+			Node parent = queue.removeFirst();
+			for (int i = 0; i < FANOUT && this.nodes.size() < this.size; i++) {
+				Node child = new Node(Repositories.getTreeKeyCodec().encode(parent.getKey(), i));
+				this.nodes.add(child);
+				queue.add(child);
+			}
+		}
+		Collections.shuffle(this.nodes, new Random(0));
+	}
+
+	@Benchmark
+	public List<Node> merge() {
+		return Repositories.mergeTrees(this.nodes);
+	}
+
+	@Benchmark
+	public List<Node> legacy() {
+		return legacyMergeTrees(this.nodes);
+	}
+
+	/**
+	 * 原合并实现：按父节点标识分组，每个节点创建链表并截取父节点标识
+	 * 
+	 * @param trees
+	 *            树对象集合
+	 * @return 根节点列表
+	 */
+	private static List<Node> legacyMergeTrees(List<Node> trees) {
+		Map<String, Node> temp = new LinkedHashMap<String, Node>(trees.size());
+		Map<String, List<Node>> groups = new HashMap<String, List<Node>>();
+		for (Node tree : trees) {
+			String key = tree.getKey();
+			if (temp.containsKey(key)) {
+				continue;
+			}
+			temp.put(key, tree);
+			if (!groups.containsKey(key)) {
+				groups.put(key, new LinkedList<Node>());
+			}
+			String parentKey = Repositories.getParentKey(key);
+			if (parentKey != null) {
+				List<Node> group = groups.get(parentKey);
+				if (group == null) {
+					group = new LinkedList<Node>();
+					groups.put(parentKey, group);
+				}
+				group.add(tree);
+			}
+		}
+		LinkedList<Node> roots = new LinkedList<Node>();
+		for (Entry<String, Node> entry : temp.entrySet()) {
+			Node tree = entry.getValue();
+			tree.setChildren(groups.get(entry.getKey()));
+			String parentKey = Repositories.getParentKey(tree.getKey());
+			if (parentKey == null || !temp.containsKey(parentKey)) {
+				roots.add(tree);
+			}
+		}
+		return roots;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(MergeTreesBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}
@@ -0,0 +1,82 @@
+package ars.database.repository;
+
+import java.util.List;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+import org.junit.Assert;
+
+import ars.database.model.AbstractTreeModel;
+import ars.database.repository.Repositories;
+
+/**
+ * 数据持久化工具类测试
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class RepositoriesTest {
+
+	/**
+	 * 测试树节点
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	public static class Node extends AbstractTreeModel<Node> {
+		private static final long serialVersionUID = 1L;
+
+		public Node(String key) {
+			this.setKey(key);
+		}
+
+	}
+
+	@Test
+	public void testMergeTreesEmpty() {
+		Assert.assertTrue(Repositories.mergeTrees(Collections.<Node> emptyList()).isEmpty());
+		Assert.assertTrue(Repositories.mergeTrees(new Node[0]).isEmpty());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testMergeTreesNull() {
+		Repositories.mergeTrees((List<Node>) null);
+	}
+
+	@Test
+	public void testMergeTrees() {
+		Node a = new Node("x2x");
+		Node b = new Node("x1x3x");
+		Node c = new Node("x1x");
+		Node d = new Node("x1x2x");
+		Node e = new Node("x1x2x5x");
+		Node f = new Node("x1x");
+		Node g = new Node("x9x1x");
+		List<Node> roots = Repositories.mergeTrees(Arrays.asList(a, b, c, d, e, f, g));
+
+		// 根节点及子节点保持原有顺序，父节点不存在的节点作为根节点
+		Assert.assertEquals(Arrays.asList(a, c, g), roots);
+		Assert.assertEquals(Arrays.asList(b, d), c.getChildren());
+		Assert.assertEquals(Arrays.asList(e), d.getChildren());
+		Assert.assertTrue(a.getChildren().isEmpty());
+		Assert.assertTrue(b.getChildren().isEmpty());
+		Assert.assertTrue(e.getChildren().isEmpty());
+		Assert.assertTrue(g.getChildren().isEmpty());
+
+		// 树标识重复的节点以首个为准
+		Assert.assertTrue(f.getChildren() == null || f.getChildren().isEmpty());
+	}
+
+	@Test
+	public void testMergeTreesSkipLevel() {
+		Node root = new Node("x1x");
+		Node grandson = new Node("x1x2x3x");
+		List<Node> roots = Repositories.mergeTrees(Arrays.asList(grandson, root));
+
+		// 中间节点缺失时孙节点不挂载到祖父节点
+		Assert.assertEquals(Arrays.asList(grandson, root), roots);
+		Assert.assertTrue(root.getChildren().isEmpty());
+	}
+
+}
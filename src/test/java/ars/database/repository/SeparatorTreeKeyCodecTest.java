@@ -0,0 +1,71 @@
+package ars.database.repository;
+
+import org.junit.Test;
+import org.junit.Assert;
+
+import ars.database.repository.SeparatorTreeKeyCodec;
+
+/**
+ * 分隔符树标识编码测试
+ * 
+ * @author yongqiangwu
+ * 
+ */
+public class SeparatorTreeKeyCodecTest {
+	private final SeparatorTreeKeyCodec codec = new SeparatorTreeKeyCodec();
+
+	@Test
+	public void testEncode() {
+		Assert.assertEquals("x1x", this.codec.encode(null, 1));
+		Assert.assertEquals("x1x12x", this.codec.encode("x1x", 12));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testEncodeNegative() {
+		this.codec.encode(null, -1);
+	}
+
+	@Test
+	public void testGetParentKey() {
+		Assert.assertNull(this.codec.getParentKey("x1x"));
+		Assert.assertEquals("x1x", this.codec.getParentKey("x1x12x"));
+		Assert.assertEquals("x1x12x", this.codec.getParentKey("x1x12x3x"));
+	}
+
+	@Test
+	public void testIsParentKey() {
+		Assert.assertTrue(this.codec.isParentKey("x1x", "x1x12x"));
+		Assert.assertFalse(this.codec.isParentKey("x1x", "x1x12x3x"));
+		Assert.assertFalse(this.codec.isParentKey("x1x", "x11x"));
+		Assert.assertFalse(this.codec.isParentKey(null, "x1x"));
+	}
+
+	@Test
+	public void testGetAncestorKeys() {
+		Assert.assertArrayEquals(new String[0], this.codec.getAncestorKeys("x1x"));
+		Assert.assertArrayEquals(new String[] { "x1x", "x1x12x" }, this.codec.getAncestorKeys("x1x12x3x"));
+	}
+
+	@Test
+	public void testGetSuccessorKey() {
+		Assert.assertEquals("x2", this.codec.getSuccessorKey("x1x"));
+		Assert.assertEquals("x13", this.codec.getSuccessorKey("x12x"));
+		Assert.assertEquals("xx", this.codec.getSuccessorKey("x9x"));
+		Assert.assertNull(this.codec.getSuccessorKey("xx"));
+		Assert.assertNull(this.codec.getSuccessorKey("a1x"));
+		Assert.assertNull(this.codec.getSuccessorKey(null));
+	}
+
+	@Test
+	public void testSuccessorKeyBounds() {
+		String prefix = "x1x";
+		String bound = this.codec.getSuccessorKey(prefix);
+		for (String key : new String[] { "x1x", "x1x0x", "x1x9x", "x1x99x9x" }) {
+			Assert.assertTrue(key.compareTo(prefix) >= 0 && key.compareTo(bound) < 0);
+		}
+		for (String key : new String[] { "x10x", "x2x", "x19x" }) {
+			Assert.assertFalse(key.compareTo(prefix) >= 0 && key.compareTo(bound) < 0);
+		}
+	}
+
+}
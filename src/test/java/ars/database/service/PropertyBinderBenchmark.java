@@ -0,0 +1,240 @@
+package ars.database.service;
+
+import java.util.Map;
+import java.util.List;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import ars.util.Beans;
+import ars.database.model.AbstractModel;
+
+/**
+ * 对象属性绑定性能测试（预解析的属性绑定器与原逐次反射遍历实现对比）
+ * 
+ * 宽数据模型的全部属性均为基本类型，不涉及外键对象加载；运行方式：在测试类路径下执行main方法
+ * 
+ * @author yongqiangwu
+ * 
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PropertyBinderBenchmark {
+	/**
+	 * 主键名称
+	 */
+	private static final String PRIMARY = "id";
+
+	/**
+	 * 宽数据模型
+	 * 
+	 * @author yongqiangwu
+	 * 
+	 */
+	public static class Wide extends AbstractModel {
+		private static final long serialVersionUID = 1L;
+
+		private String code;
+		private String name;
+		private String title;
+		private String email;
+		private String phone;
+		private String address;
+		private Integer age;
+		private Integer score;
+		private Integer grade;
+		private Double weight;
+		private Double height;
+		private Date birthday;
+
+		public String getCode() {
+			return code;
+		}
+
+		public void setCode(String code) {
+			this.code = code;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public void setTitle(String title) {
+			this.title = title;
+		}
+
+		public String getEmail() {
+			return email;
+		}
+
+		public void setEmail(String email) {
+			this.email = email;
+		}
+
+		public String getPhone() {
+			return phone;
+		}
+
+		public void setPhone(String phone) {
+			this.phone = phone;
+		}
+
+		public String getAddress() {
+			return address;
+		}
+
+		public void setAddress(String address) {
+			this.address = address;
+		}
+
+		public Integer getAge() {
+			return age;
+		}
+
+		public void setAge(Integer age) {
+			this.age = age;
+		}
+
+		public Integer getScore() {
+			return score;
+		}
+
+		public void setScore(Integer score) {
+			this.score = score;
+		}
+
+		public Integer getGrade() {
+			return grade;
+		}
+
+		public void setGrade(Integer grade) {
+			this.grade = grade;
+		}
+
+		public Double getWeight() {
+			return weight;
+		}
+
+		public void setWeight(Double weight) {
+			this.weight = weight;
+		}
+
+		public Double getHeight() {
+			return height;
+		}
+
+		public void setHeight(Double height) {
+			this.height = height;
+		}
+
+		public Date getBirthday() {
+			return birthday;
+		}
+
+		public void setBirthday(Date birthday) {
+			this.birthday = birthday;
+		}
+
+	}
+
+	private List<PropertyBinder> binders; // 预解析的属性绑定器
+	private Map<String, Object> parameters; // 请求参数
+
+	@Setup
+	public void setup() {
+		this.binders = new ArrayList<PropertyBinder>();
+		Class<?> model = Wide.class;
+		while (model != Object.class) {
+			for (Field field : model.getDeclaredFields()) {
+				if (!Modifier.isStatic(field.getModifiers()) && !field.getName().equals(PRIMARY)) {
+					this.binders.add(new PropertyBinder(Wide.class, model, field));
+				}
+			}
+			model = model.getSuperclass();
+		}
+		this.parameters = new HashMap<String, Object>();
+		this.parameters.put("code", "A001");
+		this.parameters.put("name", "name");
+		this.parameters.put("title", "title");
+		this.parameters.put("email", "a@b.com");
+		this.parameters.put("phone", "13800000000");
+		this.parameters.put("address", "address");
+		this.parameters.put("age", "18");
+		this.parameters.put("score", "90");
+		this.parameters.put("grade", "3");
+		this.parameters.put("weight", "60.5");
+		this.parameters.put("height", "170.5");
+		this.parameters.put("remark", "remark");
+		this.parameters.put("status", "1");
+		this.parameters.put("active", "true");
+	}
+
+	@Benchmark
+	public Wide binder() {
+		Wide entity = new Wide();
+		for (PropertyBinder binder : this.binders) {
+			String property = binder.getProperty();
+			if (this.parameters.containsKey(property)) {
+				binder.bind(entity, this.parameters.get(property), null);
+			}
+		}
+		return entity;
+	}
+
+	@Benchmark
+	public Wide legacy() {
+		Wide entity = new Wide();
+		Class<?> model = Wide.class;
+		while (model != Object.class) {
+			for (Field field : model.getDeclaredFields()) {
+				String property = field.getName();
+				if (Modifier.isStatic(field.getModifiers()) || property.equals(PRIMARY)
+						|| !this.parameters.containsKey(property)) {
+					continue;
+				}
+				Class<?> type = field.getType();
+				if (Collection.class.isAssignableFrom(type) || !Beans.isMetaClass(type)) { // 宽数据模型不包含关联属性
+					continue;
+				}
+				Beans.setValue(entity, field, this.parameters.get(property));
+			}
+			model = model.getSuperclass();
+		}
+		return entity;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		new Runner(new OptionsBuilder().include(PropertyBinderBenchmark.class.getSimpleName()).build()).run();
+	}
+
+}